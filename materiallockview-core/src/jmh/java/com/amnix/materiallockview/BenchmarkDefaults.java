@@ -0,0 +1,59 @@
+package com.amnix.materiallockview;
+
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Settings shared by the benchmarks: throughput in operations per microsecond, one fork, five one-second warm-up and
+ * measurement iterations. Run them with {@code ./gradlew :materiallockview-core:jmh}, which adds the gc profiler for
+ * the allocation rate.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+abstract class BenchmarkDefaults {
+
+    /**
+     * Operations per benchmark invocation, over precomputed random inputs.
+     */
+    static final int SAMPLES = 1024;
+
+    static final long SEED = 42;
+
+    /**
+     * A 1080px wide grid, as on a full HD phone held upright.
+     */
+    static final float GRID_SIZE = 1080f;
+
+    /**
+     * The hit factor of {@code MaterialLockView}.
+     */
+    static final float HIT_FACTOR = 0.6f;
+
+    /**
+     * @return A random pattern of the given length: distinct cell IDs, in random order.
+     */
+    static byte[] randomPattern(Random random, int lockSize, int length) {
+        final byte[] ids = new byte[lockSize * lockSize];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = (byte) i;
+        }
+        for (int i = ids.length - 1; i > 0; i--) {
+            final int j = random.nextInt(i + 1);
+            final byte t = ids[i];
+            ids[i] = ids[j];
+            ids[j] = t;
+        }
+        return Arrays.copyOf(ids, length);
+    }
+}
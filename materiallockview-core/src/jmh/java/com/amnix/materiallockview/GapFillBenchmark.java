@@ -0,0 +1,88 @@
+package com.amnix.materiallockview;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+
+/**
+ * Gap filling on its own, and the whole cell detection of a gesture as the view runs it: segment hits, then gap
+ * filling and pattern updates by the same {@link PatternBuilder}.
+ */
+@State(Scope.Thread)
+public class GapFillBenchmark extends BenchmarkDefaults {
+
+    private static final int GESTURES = 64;
+
+    @Param({"3", "4", "5", "6", "7", "8", "9"})
+    public int lockSize;
+
+    private final int[] mFromIds = new int[SAMPLES];
+    private final int[] mToIds = new int[SAMPLES];
+    private final int[] mGapCells = new int[LockGrid.MAX_GAP_CELLS];
+
+    /**
+     * Touch samples of every gesture, one per cell center: every move jumps over the cells in between.
+     */
+    private final float[][] mGestureXs = new float[GESTURES][];
+    private final float[][] mGestureYs = new float[GESTURES][];
+    private final CellHitTester mHitTester = new CellHitTester();
+    private final int[] mSegmentHits = new int[CellHitTester.MAX_SEGMENT_HITS];
+    private final PatternBuilder mPatternBuilder = new PatternBuilder(null);
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(SEED);
+        final int cellCount = lockSize * lockSize;
+        for (int i = 0; i < SAMPLES; i++) {
+            mFromIds[i] = random.nextInt(cellCount);
+            mToIds[i] = random.nextInt(cellCount);
+        }
+
+        final float square = GRID_SIZE / lockSize;
+        mHitTester.setGeometry(0f, 0f, square, square, lockSize, HIT_FACTOR);
+        for (int i = 0; i < GESTURES; i++) {
+            final byte[] ids = randomPattern(random, lockSize, cellCount / 2);
+            mGestureXs[i] = new float[ids.length];
+            mGestureYs[i] = new float[ids.length];
+            for (int j = 0; j < ids.length; j++) {
+                mGestureXs[i][j] = (LockGrid.getColumn(ids[j], lockSize) + 0.5f) * square;
+                mGestureYs[i][j] = (LockGrid.getRow(ids[j], lockSize) + 0.5f) * square;
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public void gapCells(Blackhole blackhole) {
+        for (int i = 0; i < SAMPLES; i++) {
+            blackhole.consume(LockGrid.getGapCells(mFromIds[i], mToIds[i], lockSize, mGapCells));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(GESTURES)
+    public void detectGesture(Blackhole blackhole) {
+        for (int i = 0; i < GESTURES; i++) {
+            blackhole.consume(detect(mGestureXs[i], mGestureYs[i]));
+        }
+    }
+
+    private int detect(float[] xs, float[] ys) {
+        final PatternBuilder builder = mPatternBuilder;
+        builder.reset(lockSize);
+        builder.addHit(mHitTester.getCellHit(xs[0], ys[0]));
+        for (int i = 1; i < xs.length; i++) {
+            final int count = mHitTester.getCellHits(xs[i - 1], ys[i - 1], xs[i], ys[i], mSegmentHits);
+            for (int j = 0; j < count; j++) {
+                builder.addHit(mSegmentHits[j]);
+            }
+        }
+        return builder.size();
+    }
+}
@@ -0,0 +1,86 @@
+package com.amnix.materiallockview;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+
+/**
+ * Hit testing of single touch points and of the segments between two touch samples. {@link #loopCellHit} is the
+ * baseline: the per-row/per-column loops {@link CellHitTester} replaced, as kept by {@code LoopHitTester} for the
+ * tests.
+ */
+@State(Scope.Thread)
+public class HitTestBenchmark extends BenchmarkDefaults {
+
+    @Param({"3", "4", "5", "6", "7", "8", "9"})
+    public int lockSize;
+
+    @Param({"false", "true"})
+    public boolean circular;
+
+    private final CellHitTester mHitTester = new CellHitTester();
+    private LoopHitTester mLoopHitTester;
+    private final float[] mXs = new float[SAMPLES + 1];
+    private final float[] mYs = new float[SAMPLES + 1];
+    private final int[] mHits = new int[CellHitTester.MAX_SEGMENT_HITS];
+
+    @Setup
+    public void setUp() {
+        final float square = GRID_SIZE / lockSize;
+        mHitTester.setGeometry(0f, 0f, square, square, lockSize, HIT_FACTOR);
+        mHitTester.setCircular(circular);
+        mLoopHitTester = new LoopHitTester(0f, 0f, square, square, lockSize, HIT_FACTOR);
+
+        final Random random = new Random(SEED);
+        for (int i = 0; i <= SAMPLES; i++) {
+            mXs[i] = random.nextFloat() * GRID_SIZE;
+            mYs[i] = random.nextFloat() * GRID_SIZE;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public void rowAndColumnHit(Blackhole blackhole) {
+        for (int i = 0; i < SAMPLES; i++) {
+            blackhole.consume(mHitTester.getRowHit(mYs[i]));
+            blackhole.consume(mHitTester.getColumnHit(mXs[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public void cellHit(Blackhole blackhole) {
+        for (int i = 0; i < SAMPLES; i++) {
+            blackhole.consume(mHitTester.getCellHit(mXs[i], mYs[i]));
+        }
+    }
+
+    /**
+     * The loops only know square hit boxes: compare with {@link #cellHit} where {@code circular} is false.
+     */
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public void loopCellHit(Blackhole blackhole) {
+        for (int i = 0; i < SAMPLES; i++) {
+            blackhole.consume(mLoopHitTester.getCellHit(mXs[i], mYs[i]));
+        }
+    }
+
+    /**
+     * Random segments across the grid: much longer than real samples, so the worst case of the traversal.
+     */
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public void segmentHits(Blackhole blackhole) {
+        final int[] hits = mHits;
+        for (int i = 0; i < SAMPLES; i++) {
+            blackhole.consume(mHitTester.getCellHits(mXs[i], mYs[i], mXs[i + 1], mYs[i + 1], hits));
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.amnix.materiallockview;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+
+/**
+ * The cell lookup tables of {@link GridCell}, which {@code MaterialLockView.Cell.of()} and {@code Cell.ofId()} go
+ * through, from four threads at once. Compare with a single-thread run ({@code -t 1}): a lookup taking a lock would
+ * slow down with the threads.
+ */
+@State(Scope.Benchmark)
+@Threads(4)
+public class LookupContentionBenchmark extends BenchmarkDefaults {
+
+    @Param({"3", "4", "5", "6", "7", "8", "9"})
+    public int lockSize;
+
+    private final int[] mIds = new int[SAMPLES];
+    private final int[] mRows = new int[SAMPLES];
+    private final int[] mColumns = new int[SAMPLES];
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(SEED);
+        final int cellCount = lockSize * lockSize;
+        for (int i = 0; i < SAMPLES; i++) {
+            mIds[i] = random.nextInt(cellCount);
+            mRows[i] = LockGrid.getRow(mIds[i], lockSize);
+            mColumns[i] = LockGrid.getColumn(mIds[i], lockSize);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public void cellOf(Blackhole blackhole) {
+        for (int i = 0; i < SAMPLES; i++) {
+            blackhole.consume(GridCell.of(mRows[i], mColumns[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public void cellOfId(Blackhole blackhole) {
+        for (int i = 0; i < SAMPLES; i++) {
+            blackhole.consume(GridCell.ofId(mIds[i], lockSize));
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.amnix.materiallockview;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+
+/**
+ * Pattern encodings: the simple pattern string given to the legacy listener, and the packed {@code long}.
+ */
+@State(Scope.Thread)
+public class PatternEncodingBenchmark extends BenchmarkDefaults {
+
+    private static final int PATTERNS = 64;
+
+    @Param({"3", "4", "5", "6", "7", "8", "9"})
+    public int lockSize;
+
+    private final CompactPattern[] mPatterns = new CompactPattern[PATTERNS];
+    private final byte[][] mIds = new byte[PATTERNS][];
+    private final long[] mPacked = new long[PATTERNS];
+    private final byte[] mUnpacked = new byte[LockGrid.MAX_MATRIX_SIZE];
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(SEED);
+        final int cellCount = lockSize * lockSize;
+        // the longest pattern which still packs on this grid
+        final int length = Math.min(cellCount, Long.SIZE / CompactPattern.bitsPerCell(lockSize));
+        for (int i = 0; i < PATTERNS; i++) {
+            mIds[i] = randomPattern(random, lockSize, length);
+            mPatterns[i] = new CompactPattern();
+            mPatterns[i].reset(lockSize);
+            for (byte id : mIds[i]) {
+                mPatterns[i].add(id);
+            }
+            mPacked[i] = CompactPattern.pack(mIds[i], length, lockSize);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PATTERNS)
+    public void simplePattern(Blackhole blackhole) {
+        for (int i = 0; i < PATTERNS; i++) {
+            blackhole.consume(mPatterns[i].toSimplePattern());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PATTERNS)
+    public void pack(Blackhole blackhole) {
+        for (int i = 0; i < PATTERNS; i++) {
+            blackhole.consume(CompactPattern.pack(mIds[i], mIds[i].length, lockSize));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PATTERNS)
+    public void unpack(Blackhole blackhole) {
+        for (int i = 0; i < PATTERNS; i++) {
+            blackhole.consume(CompactPattern.unpack(mPacked[i], lockSize, mUnpacked));
+        }
+    }
+}
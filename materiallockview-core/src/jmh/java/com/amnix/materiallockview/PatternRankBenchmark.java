@@ -0,0 +1,58 @@
+package com.amnix.materiallockview;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+
+/**
+ * Ranking and unranking patterns with {@link PatternRankCodec}, on the grids it supports.
+ */
+@State(Scope.Thread)
+public class PatternRankBenchmark extends BenchmarkDefaults {
+
+    private static final int PATTERNS = 64;
+
+    @Param({"3", "4"})
+    public int lockSize;
+
+    private PatternRankCodec mCodec;
+    private final byte[][] mIds = new byte[PATTERNS][];
+    private final int[] mSizes = new int[PATTERNS];
+    private final long[] mRanks = new long[PATTERNS];
+    private final byte[] mUnranked = new byte[LockGrid.MAX_MATRIX_SIZE];
+
+    @Setup
+    public void setUp() {
+        final int cellCount = lockSize * lockSize;
+        mCodec = new PatternRankCodec(lockSize, 4, cellCount);
+        // uniform random patterns, drawn by unranking uniform random ranks
+        final Random random = new Random(SEED);
+        for (int i = 0; i < PATTERNS; i++) {
+            mRanks[i] = (random.nextLong() >>> 1) % mCodec.getPatternCount();
+            mIds[i] = new byte[cellCount];
+            mSizes[i] = mCodec.unrank(mRanks[i], mIds[i]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PATTERNS)
+    public void rank(Blackhole blackhole) {
+        for (int i = 0; i < PATTERNS; i++) {
+            blackhole.consume(mCodec.rank(mIds[i], mSizes[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PATTERNS)
+    public void unrank(Blackhole blackhole) {
+        for (int i = 0; i < PATTERNS; i++) {
+            blackhole.consume(mCodec.unrank(mRanks[i], mUnranked));
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.amnix.materiallockview;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checking a pattern against a stored hash. The cost is set by the iteration count, the grid size barely matters.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class VerificationBenchmark extends BenchmarkDefaults {
+
+    @Param({"3", "4", "5", "6", "7", "8", "9"})
+    public int lockSize;
+
+    /**
+     * The default of {@code PatternVerifier}.
+     */
+    @Param({"10000"})
+    public int iterations;
+
+    private byte[] mIds;
+    private PatternHash mStored;
+
+    @Setup
+    public void setUp() {
+        mIds = randomPattern(new Random(SEED), lockSize, lockSize + 1);
+        mStored = PatternHash.create(mIds, mIds.length, lockSize, iterations);
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return mStored.matches(mIds, mIds.length, lockSize);
+    }
+}
@@ -0,0 +1,107 @@
+package com.amnix.materiallockview;
+
+/**
+ * A set of cell IDs held in two {@code long}s, enough for the {@link LockGrid#MAX_MATRIX_SIZE} cells of the
+ * largest grid. Membership tests, insertion and clearing are a few bit operations, and never touch an array.
+ */
+public final class CellBitSet {
+
+    /**
+     * IDs 0-63.
+     */
+    private long mLow;
+
+    /**
+     * IDs 64 and up. The {@code long} shift distance is taken modulo 64, so {@code 1L << id} is bit {@code id - 64}
+     * here.
+     */
+    private long mHigh;
+
+    /**
+     * @param id The cell ID.
+     * @return Whether the set contains the cell.
+     */
+    public boolean contains(int id) {
+        return id < Long.SIZE ? (mLow & (1L << id)) != 0 : (mHigh & (1L << id)) != 0;
+    }
+
+    /**
+     * @param id The cell ID.
+     */
+    public void add(int id) {
+        if (id < Long.SIZE) {
+            mLow |= 1L << id;
+        } else {
+            mHigh |= 1L << id;
+        }
+    }
+
+    /**
+     * @param id The cell ID.
+     */
+    public void remove(int id) {
+        if (id < Long.SIZE) {
+            mLow &= ~(1L << id);
+        } else {
+            mHigh &= ~(1L << id);
+        }
+    }
+
+    /**
+     * Removes all cells.
+     */
+    public void clear() {
+        mLow = 0;
+        mHigh = 0;
+    }
+
+    /**
+     * @return Whether the set is empty.
+     */
+    public boolean isEmpty() {
+        return (mLow | mHigh) == 0;
+    }
+
+    /**
+     * @return The number of cells in the set.
+     */
+    public int size() {
+        return Long.bitCount(mLow) + Long.bitCount(mHigh);
+    }
+
+    /**
+     * @param other The set to copy.
+     */
+    public void set(CellBitSet other) {
+        mLow = other.mLow;
+        mHigh = other.mHigh;
+    }
+
+    /**
+     * @return The cells with IDs 0-63, one bit per ID.
+     */
+    public long getLowBits() {
+        return mLow;
+    }
+
+    /**
+     * @return The cells with IDs 64 and up, bit {@code id - 64} per ID.
+     */
+    public long getHighBits() {
+        return mHigh;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (object instanceof CellBitSet)
+            return mLow == ((CellBitSet) object).mLow
+                    && mHigh == ((CellBitSet) object).mHigh;
+        return super.equals(object);
+    }
+
+    @Override
+    public int hashCode() {
+        final long bits = mLow * 31 + mHigh;
+        return (int) (bits ^ (bits >>> 32));
+    }
+}
@@ -0,0 +1,286 @@
+package com.amnix.materiallockview;
+
+/**
+ * Resolves a touch point to the cell it hits. The cell geometry is computed once by {@link #setGeometry} (whenever the
+ * view changes size), after which every lookup is one multiplication per axis
+ * plus a bounds check, whatever the grid size.
+ */
+public final class CellHitTester {
+
+    /**
+     * The most cells a single segment can hit, i.e. the minimum length of the array given to
+     * {@link #getCellHits(float, float, float, float, int[])}.
+     */
+    public static final int MAX_SEGMENT_HITS = 2 * LockGrid.MAX_LOCK_SIZE;
+
+    private int mLockSize = LockGrid.LOCK_SIZE;
+    private boolean mCircular = false;
+
+    private float mLeft, mTop;
+    private float mSquareWidth, mSquareHeight;
+    private float mInverseSquareWidth, mInverseSquareHeight;
+
+    /**
+     * Start and end of the hit box inside a square, relative to the square's left/top edge.
+     */
+    private float mHitStartX, mHitEndX;
+    private float mHitStartY, mHitEndY;
+
+    /**
+     * Squared radius of the hit circle, used if {@link #isCircular()}.
+     */
+    private float mHitRadiusSquared;
+
+    /**
+     * Recomputes the cell geometry.
+     *
+     * @param left         the left edge of the grid (the left padding of the view).
+     * @param top          the top edge of the grid (the top padding of the view).
+     * @param squareWidth  the width of one cell square.
+     * @param squareHeight the height of one cell square.
+     * @param lockSize     the number of rows (and columns) of the grid.
+     * @param hitFactor    the part of a square, in range 0-1, which counts as a hit.
+     */
+    public void setGeometry(float left, float top, float squareWidth, float squareHeight,
+                            int lockSize, float hitFactor) {
+        mLeft = left;
+        mTop = top;
+        mSquareWidth = squareWidth;
+        mSquareHeight = squareHeight;
+        mInverseSquareWidth = squareWidth > 0 ? 1f / squareWidth : 0f;
+        mInverseSquareHeight = squareHeight > 0 ? 1f / squareHeight : 0f;
+        mLockSize = lockSize;
+
+        final float hitWidth = squareWidth * hitFactor;
+        final float hitHeight = squareHeight * hitFactor;
+        mHitStartX = (squareWidth - hitWidth) / 2f;
+        mHitEndX = mHitStartX + hitWidth;
+        mHitStartY = (squareHeight - hitHeight) / 2f;
+        mHitEndY = mHitStartY + hitHeight;
+
+        final float hitRadius = Math.min(hitWidth, hitHeight) / 2f;
+        mHitRadiusSquared = hitRadius * hitRadius;
+    }
+
+    /**
+     * @return Whether a hit must fall inside the circle inscribed in the hit box, rather than anywhere in the box.
+     */
+    public boolean isCircular() {
+        return mCircular;
+    }
+
+    /**
+     * @param circular Whether a hit must fall inside the circle inscribed in the hit box, rather than anywhere in
+     *                 the box.
+     */
+    public void setCircular(boolean circular) {
+        mCircular = circular;
+    }
+
+    /**
+     * Finds the row that y falls into.
+     *
+     * @param y The y coordinate
+     * @return The row that y falls in, or -1 if it falls in no row.
+     */
+    public int getRowHit(float y) {
+        return getHit(y - mTop, mSquareHeight, mInverseSquareHeight, mHitStartY, mHitEndY);
+    }
+
+    /**
+     * Finds the column that x falls into.
+     *
+     * @param x The x coordinate.
+     * @return The column that x falls in, or -1 if it falls in no column.
+     */
+    public int getColumnHit(float x) {
+        return getHit(x - mLeft, mSquareWidth, mInverseSquareWidth, mHitStartX, mHitEndX);
+    }
+
+    /**
+     * Finds the cell that x, y falls into.
+     *
+     * @param x The x coordinate.
+     * @param y The y coordinate.
+     * @return The ID ({@code row * lockSize + column}) of the cell, or -1 if the point hits no cell.
+     */
+    public int getCellHit(float x, float y) {
+        final int row = getRowHit(y);
+        if (row < 0) {
+            return -1;
+        }
+        final int column = getColumnHit(x);
+        if (column < 0) {
+            return -1;
+        }
+        if (mCircular) {
+            final float dx = x - mLeft - (column + 0.5f) * mSquareWidth;
+            final float dy = y - mTop - (row + 0.5f) * mSquareHeight;
+            if (dx * dx + dy * dy > mHitRadiusSquared) {
+                return -1;
+            }
+        }
+        return row * mLockSize + column;
+    }
+
+    /**
+     * Finds, in order, every cell whose hit region the segment from x0, y0 to x1, y1 passes through. The grid is walked
+     * square by square along the segment (a DDA traversal), so the cost depends on the number of squares crossed
+     * rather than on the length of the segment.
+     *
+     * @param x0     The x coordinate of the segment start.
+     * @param y0     The y coordinate of the segment start.
+     * @param x1     The x coordinate of the segment end.
+     * @param y1     The y coordinate of the segment end.
+     * @param outIds Receives the IDs of the hit cells, must hold at least {@link #MAX_SEGMENT_HITS} entries.
+     * @return The number of IDs written to {@code outIds}.
+     */
+    public int getCellHits(float x0, float y0, float x1, float y1, int[] outIds) {
+        final float dx = x1 - x0;
+        final float dy = y1 - y0;
+        if (dx == 0 && dy == 0) {
+            final int id = getCellHit(x1, y1);
+            if (id < 0) {
+                return 0;
+            }
+            outIds[0] = id;
+            return 1;
+        }
+
+        final int lockSize = mLockSize;
+        final float squareWidth = mSquareWidth;
+        final float squareHeight = mSquareHeight;
+        final float ax = x0 - mLeft;
+        final float ay = y0 - mTop;
+
+        // clip the segment to the grid
+        float tEnter = 0f;
+        float tExit = 1f;
+        if (dx == 0) {
+            if (ax < 0 || ax > squareWidth * lockSize) {
+                return 0;
+            }
+        } else {
+            final float ta = -ax / dx;
+            final float tb = (squareWidth * lockSize - ax) / dx;
+            tEnter = Math.max(tEnter, Math.min(ta, tb));
+            tExit = Math.min(tExit, Math.max(ta, tb));
+        }
+        if (dy == 0) {
+            if (ay < 0 || ay > squareHeight * lockSize) {
+                return 0;
+            }
+        } else {
+            final float ta = -ay / dy;
+            final float tb = (squareHeight * lockSize - ay) / dy;
+            tEnter = Math.max(tEnter, Math.min(ta, tb));
+            tExit = Math.min(tExit, Math.max(ta, tb));
+        }
+        if (tEnter > tExit) {
+            return 0;
+        }
+
+        int column = clamp((int) ((ax + dx * tEnter) * mInverseSquareWidth), lockSize);
+        int row = clamp((int) ((ay + dy * tEnter) * mInverseSquareHeight), lockSize);
+
+        final int stepX = dx > 0 ? 1 : -1;
+        final int stepY = dy > 0 ? 1 : -1;
+        final float tDeltaX = dx != 0 ? Math.abs(squareWidth / dx) : Float.POSITIVE_INFINITY;
+        final float tDeltaY = dy != 0 ? Math.abs(squareHeight / dy) : Float.POSITIVE_INFINITY;
+        float tMaxX = dx != 0 ? ((column + (dx > 0 ? 1 : 0)) * squareWidth - ax) / dx
+                : Float.POSITIVE_INFINITY;
+        float tMaxY = dy != 0 ? ((row + (dy > 0 ? 1 : 0)) * squareHeight - ay) / dy
+                : Float.POSITIVE_INFINITY;
+
+        int count = 0;
+        for (int visited = 0; visited < MAX_SEGMENT_HITS; visited++) {
+            if (segmentHitsCell(ax, ay, dx, dy, row, column)) {
+                outIds[count++] = row * lockSize + column;
+            }
+            if (tMaxX < tMaxY) {
+                if (tMaxX > tExit) {
+                    break;
+                }
+                column += stepX;
+                tMaxX += tDeltaX;
+            } else {
+                if (tMaxY > tExit) {
+                    break;
+                }
+                row += stepY;
+                tMaxY += tDeltaY;
+            }
+            if (column < 0 || column >= lockSize || row < 0 || row >= lockSize) {
+                break;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Checks whether the segment from ax, ay (relative to the grid) along dx, dy crosses the hit region of a cell.
+     */
+    private boolean segmentHitsCell(float ax, float ay, float dx, float dy, int row, int column) {
+        final float squareLeft = column * mSquareWidth;
+        final float squareTop = row * mSquareHeight;
+
+        // Liang-Barsky against the hit box
+        float tEnter = 0f;
+        float tExit = 1f;
+        if (dx == 0) {
+            if (ax < squareLeft + mHitStartX || ax > squareLeft + mHitEndX) {
+                return false;
+            }
+        } else {
+            final float ta = (squareLeft + mHitStartX - ax) / dx;
+            final float tb = (squareLeft + mHitEndX - ax) / dx;
+            tEnter = Math.max(tEnter, Math.min(ta, tb));
+            tExit = Math.min(tExit, Math.max(ta, tb));
+        }
+        if (dy == 0) {
+            if (ay < squareTop + mHitStartY || ay > squareTop + mHitEndY) {
+                return false;
+            }
+        } else {
+            final float ta = (squareTop + mHitStartY - ay) / dy;
+            final float tb = (squareTop + mHitEndY - ay) / dy;
+            tEnter = Math.max(tEnter, Math.min(ta, tb));
+            tExit = Math.min(tExit, Math.max(ta, tb));
+        }
+        if (tEnter > tExit) {
+            return false;
+        }
+        if (!mCircular) {
+            return true;
+        }
+
+        // closest point of the segment to the center of the cell
+        final float cx = squareLeft + mSquareWidth / 2f - ax;
+        final float cy = squareTop + mSquareHeight / 2f - ay;
+        float t = (cx * dx + cy * dy) / (dx * dx + dy * dy);
+        t = Math.max(0f, Math.min(1f, t));
+        final float ex = dx * t - cx;
+        final float ey = dy * t - cy;
+        return ex * ex + ey * ey <= mHitRadiusSquared;
+    }
+
+    private static int clamp(int index, int lockSize) {
+        return Math.max(0, Math.min(lockSize - 1, index));
+    }
+
+    private int getHit(float offset, float squareSize, float inverseSquareSize,
+                       float hitStart, float hitEnd) {
+        if (offset < 0) {
+            return -1;
+        }
+        final int index = (int) (offset * inverseSquareSize);
+        if (index >= mLockSize) {
+            return -1;
+        }
+        final float inSquare = offset - index * squareSize;
+        if (inSquare >= hitStart && inSquare <= hitEnd) {
+            return index;
+        }
+        return -1;
+    }
+}
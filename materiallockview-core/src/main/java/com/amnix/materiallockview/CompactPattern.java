@@ -0,0 +1,197 @@
+package com.amnix.materiallockview;
+
+/**
+ * A read-only pattern made of cell IDs ({@code row * lockSize + column}), plus the whole pattern packed into one
+ * {@code long}. {@code MaterialLockView} updates a single instance as cells are added and hands that same instance
+ * to its {@code OnCompactPatternListener}, so the listener must copy whatever it wants to keep
+ * after the callback returns.
+ */
+public final class CompactPattern {
+
+    /**
+     * Returned by {@link #getPacked()} when the pattern doesn't fit in a {@code long}.
+     */
+    public static final long NOT_PACKED = -1;
+
+    /**
+     * One character per cell ID, used to build the simple pattern. The first nine keep the digits of the default
+     * 3x3 grid.
+     */
+    private static final String SIMPLE_CELL_POSITIONS = "123456789"
+            + "ABCDEFGHIJKLMNOPQRSTUVWXYZ"
+            + "abcdefghijklmnopqrstuvwxyz"
+            + "!#$%&()*+-./:;<=>?@[]";
+
+    private final byte[] mIds = new byte[LockGrid.MAX_MATRIX_SIZE];
+    private int mSize;
+    private int mLockSize;
+    private int mBitsPerCell;
+    private long mPacked;
+
+    CompactPattern() {
+        reset(LockGrid.LOCK_SIZE);
+    }
+
+    /**
+     * @return The number of cells.
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * @return The number of rows (and columns) of the grid the IDs refer to.
+     */
+    public int getLockSize() {
+        return mLockSize;
+    }
+
+    /**
+     * @param index The position in the pattern.
+     * @return The ID of the cell.
+     */
+    public int getId(int index) {
+        checkIndex(index);
+        return mIds[index];
+    }
+
+    /**
+     * @param index The position in the pattern.
+     * @return The row of the cell.
+     */
+    public int getRow(int index) {
+        return LockGrid.getRow(getId(index), mLockSize);
+    }
+
+    /**
+     * @param index The position in the pattern.
+     * @return The column of the cell.
+     */
+    public int getColumn(int index) {
+        return LockGrid.getColumn(getId(index), mLockSize);
+    }
+
+    /**
+     * Gets the pattern packed into a {@code long}: {@code id + 1} of the cell at position {@code i} is stored at bit
+     * {@code i * bitsPerCell(lockSize)}. It holds any pattern of the 3x3 grid; on larger grids it holds the patterns
+     * which fit in 64 bits.
+     *
+     * @return The packed pattern, or {@link #NOT_PACKED}.
+     */
+    public long getPacked() {
+        return mPacked;
+    }
+
+    /**
+     * Copies the cell IDs.
+     *
+     * @param dest   The destination, with room for {@link #size()} bytes from {@code offset}.
+     * @param offset The position of the first ID in {@code dest}.
+     */
+    public void copyIds(byte[] dest, int offset) {
+        System.arraycopy(mIds, 0, dest, offset, mSize);
+    }
+
+    /**
+     * @return A new array of the cell IDs.
+     */
+    public byte[] toIdArray() {
+        final byte[] ids = new byte[mSize];
+        copyIds(ids, 0);
+        return ids;
+    }
+
+    /**
+     * @return The pattern as one character per cell ({@code "1"}-{@code "9"} on the 3x3 grid).
+     */
+    public String toSimplePattern() {
+        final char[] chars = new char[mSize];
+        for (int i = 0; i < mSize; i++) {
+            chars[i] = SIMPLE_CELL_POSITIONS.charAt(mIds[i]);
+        }
+        return new String(chars);
+    }
+
+    @Override
+    public String toString() {
+        return toSimplePattern();
+    }
+
+    void reset(int lockSize) {
+        mLockSize = lockSize;
+        mBitsPerCell = bitsPerCell(lockSize);
+        mSize = 0;
+        mPacked = 0;
+    }
+
+    void set(CompactPattern other) {
+        System.arraycopy(other.mIds, 0, mIds, 0, other.mSize);
+        mSize = other.mSize;
+        mLockSize = other.mLockSize;
+        mBitsPerCell = other.mBitsPerCell;
+        mPacked = other.mPacked;
+    }
+
+    void add(int id) {
+        mIds[mSize] = (byte) id;
+        if (mPacked != NOT_PACKED) {
+            final int shift = mBitsPerCell * mSize;
+            mPacked = shift + mBitsPerCell <= Long.SIZE
+                    ? mPacked | ((long) (id + 1) << shift) : NOT_PACKED;
+        }
+        mSize++;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("index " + index + " out of 0-" + (mSize - 1));
+        }
+    }
+
+    /**
+     * @param lockSize The number of rows (and columns) of the grid.
+     * @return The number of bits of one cell in a packed pattern.
+     */
+    public static int bitsPerCell(int lockSize) {
+        return Integer.SIZE - Integer.numberOfLeadingZeros(lockSize * lockSize);
+    }
+
+    /**
+     * Packs cell IDs into a {@code long}, see {@link #getPacked()}.
+     *
+     * @param ids      The cell IDs.
+     * @param size     The number of IDs.
+     * @param lockSize The number of rows (and columns) of the grid.
+     * @return The packed pattern, or {@link #NOT_PACKED} if it doesn't fit.
+     */
+    public static long pack(byte[] ids, int size, int lockSize) {
+        final int bits = bitsPerCell(lockSize);
+        if (bits * size > Long.SIZE) {
+            return NOT_PACKED;
+        }
+        long packed = 0;
+        for (int i = 0; i < size; i++) {
+            packed |= (long) (ids[i] + 1) << (bits * i);
+        }
+        return packed;
+    }
+
+    /**
+     * Unpacks a pattern packed by {@link #pack(byte[], int, int)}.
+     *
+     * @param packed   The packed pattern.
+     * @param lockSize The number of rows (and columns) of the grid.
+     * @param dest     Receives the cell IDs.
+     * @return The number of IDs.
+     */
+    public static int unpack(long packed, int lockSize, byte[] dest) {
+        final int bits = bitsPerCell(lockSize);
+        final long mask = (1L << bits) - 1;
+        int size = 0;
+        while (packed != 0) {
+            dest[size++] = (byte) ((packed & mask) - 1);
+            packed >>>= bits;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,87 @@
+package com.amnix.materiallockview;
+
+/**
+ * The math of an animated float: start and end values, duration, and the elapsed fraction and value at a given frame
+ * time. It owns no clock and no interpolator, the caller passes frame times (in the {@link System#nanoTime()} time
+ * base) and, optionally, eases the fraction before asking for the value.
+ */
+public final class FloatAnimation {
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    private float mStartValue;
+    private float mEndValue;
+    private long mDuration;
+    private long mStartTimeNanos;
+
+    /**
+     * @param start    The start value.
+     * @param end      The end value.
+     * @param duration The duration, in milliseconds.
+     */
+    public FloatAnimation(float start, float end, long duration) {
+        setValues(start, end, duration);
+    }
+
+    /**
+     * @param start    The start value.
+     * @param end      The end value.
+     * @param duration The duration, in milliseconds.
+     */
+    public void setValues(float start, float end, long duration) {
+        mStartValue = start;
+        mEndValue = end;
+        mDuration = duration;
+    }
+
+    public float getStartValue() {
+        return mStartValue;
+    }
+
+    public float getEndValue() {
+        return mEndValue;
+    }
+
+    /**
+     * @return The duration, in milliseconds.
+     */
+    public long getDuration() {
+        return mDuration;
+    }
+
+    /**
+     * @param startTimeNanos The time the animation starts at.
+     */
+    public void start(long startTimeNanos) {
+        mStartTimeNanos = startTimeNanos;
+    }
+
+    /**
+     * @param frameTimeNanos The time of the frame.
+     * @return Whether the animation is over at that time.
+     */
+    public boolean isFinished(long frameTimeNanos) {
+        return getElapsedMillis(frameTimeNanos) >= mDuration;
+    }
+
+    /**
+     * @param frameTimeNanos The time of the frame.
+     * @return The elapsed fraction of the duration, in range 0-1.
+     */
+    public float getFraction(long frameTimeNanos) {
+        final long elapsed = getElapsedMillis(frameTimeNanos);
+        return elapsed >= mDuration ? 1f : (float) elapsed / mDuration;
+    }
+
+    /**
+     * @param fraction The (possibly eased) fraction.
+     * @return The value at that fraction.
+     */
+    public float getValue(float fraction) {
+        return mStartValue + (mEndValue - mStartValue) * fraction;
+    }
+
+    private long getElapsedMillis(long frameTimeNanos) {
+        return Math.max(0, (frameTimeNanos - mStartTimeNanos) / NANOS_PER_MILLI);
+    }
+}
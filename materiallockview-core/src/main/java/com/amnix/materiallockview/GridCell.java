@@ -0,0 +1,108 @@
+package com.amnix.materiallockview;
+
+/**
+ * A cell of the grid, by row and column. There is one instance per cell of the largest grid, shared by all grid
+ * sizes: {@link #of(int, int)} and {@link #ofId(int, int)} read tables built once when the class is initialized and
+ * never changed, so they take no lock.
+ */
+public final class GridCell {
+
+    /**
+     * All cells of the largest grid, indexed by {@code row * MAX_LOCK_SIZE + column}.
+     */
+    private static final GridCell[] sCells = new GridCell[LockGrid.MAX_MATRIX_SIZE];
+
+    /**
+     * For every grid size, its cells indexed by ID ({@code row * lockSize + column}).
+     */
+    private static final GridCell[][] sCellsById = new GridCell[LockGrid.MAX_LOCK_SIZE + 1][];
+
+    static {
+        for (int i = 0; i < LockGrid.MAX_LOCK_SIZE; i++) {
+            for (int j = 0; j < LockGrid.MAX_LOCK_SIZE; j++) {
+                sCells[i * LockGrid.MAX_LOCK_SIZE + j] = new GridCell(i, j);
+            }
+        }
+        for (int lockSize = LockGrid.MIN_LOCK_SIZE; lockSize <= LockGrid.MAX_LOCK_SIZE; lockSize++) {
+            final GridCell[] cells = new GridCell[lockSize * lockSize];
+            for (int id = 0; id < cells.length; id++) {
+                cells[id] = sCells[id / lockSize * LockGrid.MAX_LOCK_SIZE + id % lockSize];
+            }
+            sCellsById[lockSize] = cells;
+        }
+    }
+
+    public final int row, column;
+
+    private GridCell(int row, int column) {
+        this.row = row;
+        this.column = column;
+    }
+
+    /**
+     * @param lockSize The number of rows (and columns) of the grid.
+     * @return The ID of the cell in that grid.
+     */
+    public int getId(int lockSize) {
+        return LockGrid.getId(row, column, lockSize);
+    }
+
+    /**
+     * @return The position of the cell in the largest grid, {@code row * MAX_LOCK_SIZE + column}, the same for all
+     * grid sizes.
+     */
+    public int getIndex() {
+        return row * LockGrid.MAX_LOCK_SIZE + column;
+    }
+
+    /**
+     * @param row    The row of the cell.
+     * @param column The column of the cell.
+     * @return The cell.
+     * @throws IllegalArgumentException if the cell is outside of the largest grid.
+     */
+    public static GridCell of(int row, int column) {
+        if (row < 0 || row > LockGrid.MAX_LOCK_SIZE - 1) {
+            throw new IllegalArgumentException("row must be in range 0-"
+                    + (LockGrid.MAX_LOCK_SIZE - 1));
+        }
+        if (column < 0 || column > LockGrid.MAX_LOCK_SIZE - 1) {
+            throw new IllegalArgumentException("column must be in range 0-"
+                    + (LockGrid.MAX_LOCK_SIZE - 1));
+        }
+        return sCells[row * LockGrid.MAX_LOCK_SIZE + column];
+    }
+
+    /**
+     * @param id       The ID of the cell.
+     * @param lockSize The number of rows (and columns) of the grid.
+     * @return The cell.
+     * @throws IllegalArgumentException if the size isn't supported or the ID is outside of the grid.
+     */
+    public static GridCell ofId(int id, int lockSize) {
+        LockGrid.checkLockSize(lockSize);
+        final GridCell[] cells = sCellsById[lockSize];
+        if (id < 0 || id >= cells.length) {
+            throw new IllegalArgumentException("id must be in range 0-"
+                    + (cells.length - 1));
+        }
+        return cells[id];
+    }
+
+    /**
+     * @param index The position of the cell in the largest grid, see {@link #getIndex()}.
+     * @return The cell.
+     */
+    public static GridCell ofIndex(int index) {
+        if (index < 0 || index >= sCells.length) {
+            throw new IllegalArgumentException("index must be in range 0-"
+                    + (sCells.length - 1));
+        }
+        return sCells[index];
+    }
+
+    @Override
+    public String toString() {
+        return "(ROW=" + row + ",COL=" + column + ")";
+    }
+}
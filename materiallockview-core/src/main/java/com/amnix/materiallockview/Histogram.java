@@ -0,0 +1,152 @@
+package com.amnix.materiallockview;
+
+/**
+ * A histogram of non-negative {@code long} values with power-of-two buckets: bucket 0 holds 0, bucket {@code i} holds
+ * {@code 2^(i-1)} to {@code 2^i - 1}. All storage is allocated up front, recording a value is a few arithmetic
+ * operations and never allocates, so it can run on every touch event and frame.
+ */
+public final class Histogram {
+
+    /**
+     * The number of buckets, enough for every {@code long} value.
+     */
+    public static final int BUCKET_COUNT = Long.SIZE;
+
+    private final long[] mBuckets = new long[BUCKET_COUNT];
+    private long mCount;
+    private long mSum;
+    private long mMin;
+    private long mMax;
+
+    public Histogram() {
+        reset();
+    }
+
+    /**
+     * @param value The value, negative values are recorded as 0.
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        mBuckets[getBucketIndex(value)]++;
+        mCount++;
+        mSum += value;
+        if (value < mMin) {
+            mMin = value;
+        }
+        if (value > mMax) {
+            mMax = value;
+        }
+    }
+
+    /**
+     * @return The number of recorded values.
+     */
+    public long getCount() {
+        return mCount;
+    }
+
+    /**
+     * @return The sum of the recorded values.
+     */
+    public long getSum() {
+        return mSum;
+    }
+
+    /**
+     * @return The smallest recorded value, 0 if there is none.
+     */
+    public long getMin() {
+        return mCount == 0 ? 0 : mMin;
+    }
+
+    /**
+     * @return The largest recorded value, 0 if there is none.
+     */
+    public long getMax() {
+        return mCount == 0 ? 0 : mMax;
+    }
+
+    /**
+     * @return The mean of the recorded values, 0 if there is none.
+     */
+    public double getMean() {
+        return mCount == 0 ? 0 : (double) mSum / mCount;
+    }
+
+    /**
+     * @param index The bucket, in range 0-{@link #BUCKET_COUNT}{@code - 1}.
+     * @return The number of recorded values in the bucket.
+     */
+    public long getBucketValueCount(int index) {
+        return mBuckets[index];
+    }
+
+    /**
+     * Gets an upper bound of a percentile: the largest value of the bucket it falls in, or the largest recorded value
+     * if smaller.
+     *
+     * @param percentile The percentile, in range 0-100.
+     * @return The upper bound, 0 if no value was recorded.
+     */
+    public long getPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile must be in range 0-100");
+        }
+        if (mCount == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * mCount));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += mBuckets[i];
+            if (seen >= rank) {
+                return Math.min(getBucketUpperBound(i), mMax);
+            }
+        }
+        return mMax;
+    }
+
+    /**
+     * Forgets all recorded values.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            mBuckets[i] = 0;
+        }
+        mCount = 0;
+        mSum = 0;
+        mMin = Long.MAX_VALUE;
+        mMax = Long.MIN_VALUE;
+    }
+
+    /**
+     * Copies the values of another histogram into this one, without allocating.
+     *
+     * @param other The histogram to copy.
+     */
+    public void set(Histogram other) {
+        System.arraycopy(other.mBuckets, 0, mBuckets, 0, BUCKET_COUNT);
+        mCount = other.mCount;
+        mSum = other.mSum;
+        mMin = other.mMin;
+        mMax = other.mMax;
+    }
+
+    /**
+     * @param value A non-negative value.
+     * @return The bucket of the value.
+     */
+    public static int getBucketIndex(long value) {
+        return Long.SIZE - Long.numberOfLeadingZeros(value);
+    }
+
+    /**
+     * @param index The bucket.
+     * @return The largest value of the bucket.
+     */
+    public static long getBucketUpperBound(int index) {
+        return index == BUCKET_COUNT - 1 ? Long.MAX_VALUE : (1L << index) - 1;
+    }
+}
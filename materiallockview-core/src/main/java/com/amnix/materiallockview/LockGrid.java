@@ -0,0 +1,107 @@
+package com.amnix.materiallockview;
+
+/**
+ * The grid model shared by the view and the pattern codecs: supported sizes, cell IDs ({@code row * lockSize +
+ * column}) and the cells a straight move between two cells passes through.
+ */
+public final class LockGrid {
+
+    /**
+     * The default number of rows (and columns) of the grid.
+     */
+    public static final int LOCK_SIZE = 3;
+
+    /**
+     * The smallest supported number of rows (and columns) of the grid.
+     */
+    public static final int MIN_LOCK_SIZE = 3;
+
+    /**
+     * The largest supported number of rows (and columns) of the grid.
+     */
+    public static final int MAX_LOCK_SIZE = 9;
+
+    /**
+     * The size of the largest supported pattern's matrix.
+     */
+    public static final int MAX_MATRIX_SIZE = MAX_LOCK_SIZE * MAX_LOCK_SIZE;
+
+    /**
+     * The most cells a move between two cells can pass through, on the largest grid.
+     */
+    public static final int MAX_GAP_CELLS = MAX_LOCK_SIZE - 2;
+
+    private LockGrid() {
+    }
+
+    /**
+     * @param lockSize The number of rows (and columns).
+     * @throws IllegalArgumentException if the size is out of {@link #MIN_LOCK_SIZE}-{@link #MAX_LOCK_SIZE}.
+     */
+    public static void checkLockSize(int lockSize) {
+        if (lockSize < MIN_LOCK_SIZE || lockSize > MAX_LOCK_SIZE) {
+            throw new IllegalArgumentException("lock size must be in range "
+                    + MIN_LOCK_SIZE + "-" + MAX_LOCK_SIZE);
+        }
+    }
+
+    /**
+     * @param row      The row of the cell.
+     * @param column   The column of the cell.
+     * @param lockSize The number of rows (and columns) of the grid.
+     * @return The ID of the cell.
+     */
+    public static int getId(int row, int column, int lockSize) {
+        return row * lockSize + column;
+    }
+
+    /**
+     * @param id       The ID of the cell.
+     * @param lockSize The number of rows (and columns) of the grid.
+     * @return The row of the cell.
+     */
+    public static int getRow(int id, int lockSize) {
+        return id / lockSize;
+    }
+
+    /**
+     * @param id       The ID of the cell.
+     * @param lockSize The number of rows (and columns) of the grid.
+     * @return The column of the cell.
+     */
+    public static int getColumn(int id, int lockSize) {
+        return id % lockSize;
+    }
+
+    /**
+     * Gets the cells lying exactly on the straight line between two cells, which a move from one to the other passes
+     * through, in order.
+     *
+     * @param fromId   The ID of the cell the move starts from.
+     * @param toId     The ID of the cell the move ends on.
+     * @param lockSize The number of rows (and columns) of the grid.
+     * @param dest     Receives the IDs, with room for {@link #MAX_GAP_CELLS}.
+     * @return The number of IDs.
+     */
+    public static int getGapCells(int fromId, int toId, int lockSize, int[] dest) {
+        final int fromRow = fromId / lockSize;
+        final int fromColumn = fromId % lockSize;
+        final int dRow = toId / lockSize - fromRow;
+        final int dColumn = toId % lockSize - fromColumn;
+        final int steps = gcd(Math.abs(dRow), Math.abs(dColumn));
+
+        for (int i = 1; i < steps; i++) {
+            dest[i - 1] = (fromRow + dRow / steps * i) * lockSize + fromColumn + dColumn / steps * i;
+        }
+        return Math.max(0, steps - 1);
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            final int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+}
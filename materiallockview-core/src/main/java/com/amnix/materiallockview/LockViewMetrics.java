@@ -0,0 +1,80 @@
+package com.amnix.materiallockview;
+
+/**
+ * Performance measurements of a lock view, gathered while a metrics listener is set. Every histogram is allocated
+ * with the metrics, so gathering them creates no garbage. Times are in nanoseconds.
+ */
+public final class LockViewMetrics {
+
+    private final Histogram mInputLatency = new Histogram();
+    private final Histogram mMoveHandlingTime = new Histogram();
+    private final Histogram mDrawTime = new Histogram();
+    private final Histogram mSamplesPerEvent = new Histogram();
+    private final Histogram mInvalidatedArea = new Histogram();
+    private final Histogram mAnimationsPerPattern = new Histogram();
+    private final Histogram mPredictionError = new Histogram();
+
+    /**
+     * @return Time from a touch event to the start of the next draw, in nanoseconds. Touch events arriving before
+     * that draw are measured from the oldest one.
+     */
+    public Histogram getInputLatency() {
+        return mInputLatency;
+    }
+
+    /**
+     * @return Time spent handling one move event, in nanoseconds.
+     */
+    public Histogram getMoveHandlingTime() {
+        return mMoveHandlingTime;
+    }
+
+    /**
+     * @return Time spent drawing the view, in nanoseconds.
+     */
+    public Histogram getDrawTime() {
+        return mDrawTime;
+    }
+
+    /**
+     * @return Touch samples of one move event, the historical ones included.
+     */
+    public Histogram getSamplesPerEvent() {
+        return mSamplesPerEvent;
+    }
+
+    /**
+     * @return Area of every invalidation, in pixels.
+     */
+    public Histogram getInvalidatedArea() {
+        return mInvalidatedArea;
+    }
+
+    /**
+     * @return Cell animations started per pattern.
+     */
+    public Histogram getAnimationsPerPattern() {
+        return mAnimationsPerPattern;
+    }
+
+    /**
+     * @return Distance between where touch prediction placed the finger and where it was, in pixels. Empty unless
+     * touch prediction is on.
+     */
+    public Histogram getPredictionError() {
+        return mPredictionError;
+    }
+
+    /**
+     * Forgets all measurements.
+     */
+    public void reset() {
+        mInputLatency.reset();
+        mMoveHandlingTime.reset();
+        mDrawTime.reset();
+        mSamplesPerEvent.reset();
+        mInvalidatedArea.reset();
+        mAnimationsPerPattern.reset();
+        mPredictionError.reset();
+    }
+}
@@ -0,0 +1,132 @@
+package com.amnix.materiallockview;
+
+/**
+ * Builds a pattern from the cells a gesture hits, the way {@code MaterialLockView} does: a cell is only added once,
+ * and a move to a new cell first adds the cells it passes over that aren't in the pattern yet (see {@link
+ * LockGrid#getGapCells(int, int, int, int[])}). The pattern is kept as a {@link CompactPattern} and a {@link
+ * CellBitSet} of its cells, so adding a hit allocates nothing.
+ */
+public final class PatternBuilder {
+
+    /**
+     * Told about every cell {@link #addHit(int)} adds, gap cells included, right after it is added.
+     */
+    public interface OnCellAddedListener {
+
+        /**
+         * @param id The ID of the cell, now the last one of the pattern.
+         */
+        void onCellAdded(int id);
+
+    }
+
+    private final CompactPattern mPattern = new CompactPattern();
+
+    /**
+     * The cells of {@link #mPattern}.
+     */
+    private final CellBitSet mCells = new CellBitSet();
+
+    /**
+     * Receives the cells skipped over between two hits.
+     */
+    private final int[] mGapCells = new int[LockGrid.MAX_GAP_CELLS];
+
+    private final OnCellAddedListener mListener;
+
+    /**
+     * @param listener Told about the cells added by hits, or {@code null}.
+     */
+    public PatternBuilder(OnCellAddedListener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * Clears the pattern.
+     *
+     * @param lockSize The number of rows (and columns) of the grid of the next cells.
+     */
+    public void reset(int lockSize) {
+        LockGrid.checkLockSize(lockSize);
+        mPattern.reset(lockSize);
+        mCells.clear();
+    }
+
+    /**
+     * @return The number of rows (and columns) of the grid.
+     */
+    public int getLockSize() {
+        return mPattern.getLockSize();
+    }
+
+    /**
+     * @return The pattern, updated in place as cells are added.
+     */
+    public CompactPattern getPattern() {
+        return mPattern;
+    }
+
+    /**
+     * @return The number of cells.
+     */
+    public int size() {
+        return mPattern.size();
+    }
+
+    /**
+     * @param id The cell ID.
+     * @return Whether the pattern has the cell.
+     */
+    public boolean contains(int id) {
+        return mCells.contains(id);
+    }
+
+    /**
+     * Adds the cell hit by the gesture, if it isn't in the pattern yet, after the cells skipped over since the last
+     * one.
+     *
+     * @param id The ID of the hit cell, or -1 if none.
+     * @return The number of cells added, 0 if none.
+     */
+    public int addHit(int id) {
+        if (id < 0 || mCells.contains(id)) {
+            return 0;
+        }
+        int addedCount = 0;
+
+        // check for gaps in existing pattern: every cell lying exactly on
+        // the straight line from the last cell is passed through
+        final CompactPattern pattern = mPattern;
+        if (pattern.size() > 0) {
+            final int[] gapCells = mGapCells;
+            final int gapCount = LockGrid.getGapCells(pattern.getId(pattern.size() - 1), id,
+                    pattern.getLockSize(), gapCells);
+            for (int i = 0; i < gapCount; i++) {
+                if (!mCells.contains(gapCells[i])) {
+                    addCell(gapCells[i]);
+                    addedCount++;
+                }
+            }
+        }
+
+        addCell(id);
+        return addedCount + 1;
+    }
+
+    /**
+     * Appends a cell as is, without filling gaps nor telling the listener, e.g. to set a whole pattern.
+     *
+     * @param id The cell ID.
+     */
+    public void append(int id) {
+        mCells.add(id);
+        mPattern.add(id);
+    }
+
+    private void addCell(int id) {
+        append(id);
+        if (mListener != null) {
+            mListener.onCellAdded(id);
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.amnix.materiallockview;
+
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * A stored pattern: salt, iteration count and PBKDF2-HMAC-SHA256 hash of the grid size followed by the cell IDs.
+ * Encode it with {@link #encode()} to keep it in preferences or a database. Creating and matching hashes is as slow as
+ * the iteration count makes it, do it off the UI thread.
+ */
+public final class PatternHash {
+
+    /**
+     * The most PBKDF2 iterations of a hash, 100 times {@code PatternVerifier.DEFAULT_ITERATIONS}: a stored hash asking
+     * for more is rejected rather than tying up the verifier.
+     */
+    public static final int MAX_ITERATIONS = 1000000;
+
+    private static final String HMAC = "HmacSHA256";
+    private static final int SALT_LENGTH = 16;
+
+    /**
+     * The length of an HMAC-SHA256 output block.
+     */
+    private static final int HASH_LENGTH = 32;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static SecureRandom sRandom;
+
+    private final int mIterations;
+    private final byte[] mSalt;
+    private final byte[] mHash;
+
+    PatternHash(int iterations, byte[] salt, byte[] hash) {
+        mIterations = iterations;
+        mSalt = salt;
+        mHash = hash;
+    }
+
+    /**
+     * Derives the hash of a pattern with a new random salt.
+     *
+     * @param pattern    The pattern.
+     * @param iterations The number of PBKDF2 iterations, in range 1-{@link #MAX_ITERATIONS}.
+     * @return The hash.
+     */
+    public static PatternHash create(CompactPattern pattern, int iterations) {
+        final byte[] ids = pattern.toIdArray();
+        return create(ids, ids.length, pattern.getLockSize(), iterations);
+    }
+
+    /**
+     * Derives the hash of a pattern with a new random salt.
+     *
+     * @param ids        The cell IDs.
+     * @param size       The number of cells.
+     * @param lockSize   The number of rows (and columns) of the grid.
+     * @param iterations The number of PBKDF2 iterations, in range 1-{@link #MAX_ITERATIONS}.
+     * @return The hash.
+     */
+    public static PatternHash create(byte[] ids, int size, int lockSize, int iterations) {
+        checkIterations(iterations);
+        final byte[] salt = new byte[SALT_LENGTH];
+        getRandom().nextBytes(salt);
+        return new PatternHash(iterations, salt, derive(ids, size, lockSize, salt, iterations));
+    }
+
+    /**
+     * Checks a pattern against this hash, in constant time once derived.
+     *
+     * @param ids      The cell IDs.
+     * @param size     The number of cells.
+     * @param lockSize The number of rows (and columns) of the grid.
+     * @return Whether the pattern matches.
+     */
+    public boolean matches(byte[] ids, int size, int lockSize) {
+        return constantTimeEquals(derive(ids, size, lockSize, mSalt, mIterations), mHash);
+    }
+
+    /**
+     * @return The number of PBKDF2 iterations.
+     */
+    public int getIterations() {
+        return mIterations;
+    }
+
+    /**
+     * @return The hash as {@code iterations:salt:hash}, with salt and hash in hexadecimal.
+     */
+    public String encode() {
+        return mIterations + ":" + toHex(mSalt) + ":" + toHex(mHash);
+    }
+
+    /**
+     * @param encoded A hash encoded by {@link #encode()}.
+     * @return The hash.
+     * @throws IllegalArgumentException if the string is malformed, the salt or hash has the wrong length, or the
+     *                                  iteration count is out of range 1-{@link #MAX_ITERATIONS}, e.g. in a corrupted
+     *                                  or tampered preference.
+     */
+    public static PatternHash decode(String encoded) {
+        final String[] parts = encoded.split(":");
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("not an encoded pattern hash: " + encoded);
+        }
+        final int iterations;
+        final byte[] salt;
+        final byte[] hash;
+        try {
+            iterations = Integer.parseInt(parts[0]);
+            salt = fromHex(parts[1]);
+            hash = fromHex(parts[2]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("not an encoded pattern hash: " + encoded, e);
+        }
+        checkIterations(iterations);
+        if (salt.length != SALT_LENGTH) {
+            throw new IllegalArgumentException("salt must be " + SALT_LENGTH + " bytes");
+        }
+        if (hash.length != HASH_LENGTH) {
+            throw new IllegalArgumentException("hash must be " + HASH_LENGTH + " bytes");
+        }
+        return new PatternHash(iterations, salt, hash);
+    }
+
+    private static void checkIterations(int iterations) {
+        if (iterations < 1 || iterations > MAX_ITERATIONS) {
+            throw new IllegalArgumentException("iterations must be in range 1-" + MAX_ITERATIONS);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return encode();
+    }
+
+    static boolean constantTimeEquals(byte[] a, byte[] b) {
+        if (a.length != b.length) {
+            return false;
+        }
+        int difference = 0;
+        for (int i = 0; i < a.length; i++) {
+            difference |= a[i] ^ b[i];
+        }
+        return difference == 0;
+    }
+
+    /**
+     * PBKDF2-HMAC-SHA256 with one output block, over the grid size followed by the cell IDs.
+     */
+    private static byte[] derive(byte[] ids, int size, int lockSize, byte[] salt, int iterations) {
+        final byte[] password = new byte[size + 1];
+        password[0] = (byte) lockSize;
+        System.arraycopy(ids, 0, password, 1, size);
+        try {
+            final Mac mac = Mac.getInstance(HMAC);
+            mac.init(new SecretKeySpec(password, HMAC));
+            mac.update(salt);
+            mac.update(new byte[]{0, 0, 0, 1});
+            final byte[] u = mac.doFinal();
+            final byte[] result = u.clone();
+            for (int i = 1; i < iterations; i++) {
+                mac.update(u);
+                mac.doFinal(u, 0);
+                for (int j = 0; j < result.length; j++) {
+                    result[j] ^= u[j];
+                }
+            }
+            return result;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(HMAC + " is not available", e);
+        }
+    }
+
+    private static synchronized SecureRandom getRandom() {
+        if (sRandom == null) {
+            sRandom = new SecureRandom();
+        }
+        return sRandom;
+    }
+
+    private static String toHex(byte[] bytes) {
+        final char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xf];
+        }
+        return new String(chars);
+    }
+
+    private static byte[] fromHex(String hex) {
+        if (hex.length() % 2 != 0) {
+            throw new NumberFormatException("odd length: " + hex);
+        }
+        final byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            final int high = Character.digit(hex.charAt(i * 2), 16);
+            final int low = Character.digit(hex.charAt(i * 2 + 1), 16);
+            if (high < 0 || low < 0) {
+                throw new NumberFormatException("not hexadecimal: " + hex);
+            }
+            bytes[i] = (byte) (high << 4 | low);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,258 @@
+package com.amnix.materiallockview;
+
+/**
+ * Numbers every valid pattern of a grid densely: maps each pattern to its rank in {@code [0, }{@link
+ * #getPatternCount()}{@code )} and back. A rank is the smallest possible encoding of a pattern, ranks of past attempts
+ * fit in a bit set, and unranking a uniform random number picks a uniform random pattern.
+ * <p/>
+ * A pattern is valid if its cells are distinct and every move between two of its cells only passes over cells already
+ * in it, as {@code MaterialLockView} enforces by adding the cells in between (see {@link LockGrid#getGapCells(int,
+ * int, int, int[])}). Patterns are ranked in lexicographic order of their cell IDs, a pattern before its extensions.
+ * <p/>
+ * The codec counts the valid completions of every (visited cells, last cell) state once, in its constructor, so
+ * encoding and decoding only walk the pattern, trying each cell of the grid at every step: {@link #rank(byte[], int)}
+ * and {@link #unrank(long, byte[])} take {@code O(length * lockSize^2)} time, i.e. up to 81 table reads on the 3x3
+ * grid and 256 on the 4x4 one, not {@code O(length)}. Prefix sums over the next cells of every state would make each
+ * step a single lookup, but take {@code lockSize^2} times the memory, 128 MB on the 4x4 grid.
+ * <p/>
+ * The table has {@code 2^(lockSize^2) * lockSize^2} entries, which limits the codec to {@link #MAX_LOCK_SIZE}: 4,608
+ * entries on the 3x3 grid, 8 MB on the 4x4 one. A codec is immutable and may be shared between threads.
+ */
+public final class PatternRankCodec {
+
+    /**
+     * The largest grid the codec supports.
+     */
+    public static final int MAX_LOCK_SIZE = 4;
+
+    private final int mLockSize;
+    private final int mCellCount;
+    private final int mMinLength;
+    private final int mMaxLength;
+
+    /**
+     * For every pair of cells {@code from * cellCount + to}, the cells in between as a bit mask.
+     */
+    private final int[] mGaps;
+
+    /**
+     * For every state {@code visited * cellCount + last}, the number of valid patterns starting with it.
+     */
+    private final long[] mCounts;
+    private final long mPatternCount;
+
+    /**
+     * @param lockSize  The number of rows (and columns) of the grid, up to {@link #MAX_LOCK_SIZE}.
+     * @param minLength The fewest cells of a pattern.
+     * @param maxLength The most cells of a pattern.
+     */
+    public PatternRankCodec(int lockSize, int minLength, int maxLength) {
+        LockGrid.checkLockSize(lockSize);
+        if (lockSize > MAX_LOCK_SIZE) {
+            throw new IllegalArgumentException("lock size must be at most " + MAX_LOCK_SIZE);
+        }
+        final int cellCount = lockSize * lockSize;
+        if (minLength < 1 || minLength > maxLength || maxLength > cellCount) {
+            throw new IllegalArgumentException("lengths must be in range 1-" + cellCount
+                    + ", min length not above max length");
+        }
+        mLockSize = lockSize;
+        mCellCount = cellCount;
+        mMinLength = minLength;
+        mMaxLength = maxLength;
+
+        mGaps = new int[cellCount * cellCount];
+        final int[] gapCells = new int[LockGrid.MAX_GAP_CELLS];
+        for (int from = 0; from < cellCount; from++) {
+            for (int to = 0; to < cellCount; to++) {
+                final int gapCount = LockGrid.getGapCells(from, to, lockSize, gapCells);
+                for (int i = 0; i < gapCount; i++) {
+                    mGaps[from * cellCount + to] |= 1 << gapCells[i];
+                }
+            }
+        }
+
+        // a state only leads to states with more visited cells, which have larger masks
+        mCounts = new long[(1 << cellCount) * cellCount];
+        for (int visited = (1 << cellCount) - 1; visited > 0; visited--) {
+            final int length = Integer.bitCount(visited);
+            if (length > maxLength) {
+                continue;
+            }
+            for (int last = 0; last < cellCount; last++) {
+                if ((visited & 1 << last) == 0) {
+                    continue;
+                }
+                long count = length >= minLength ? 1 : 0;
+                if (length < maxLength) {
+                    for (int next = 0; next < cellCount; next++) {
+                        if (canMove(visited, last, next)) {
+                            count = add(count, mCounts[(visited | 1 << next) * cellCount + next]);
+                        }
+                    }
+                }
+                mCounts[visited * cellCount + last] = count;
+            }
+        }
+        long patternCount = 0;
+        for (int first = 0; first < cellCount; first++) {
+            patternCount = add(patternCount, mCounts[(1 << first) * cellCount + first]);
+        }
+        mPatternCount = patternCount;
+    }
+
+    /**
+     * @return The number of rows (and columns) of the grid.
+     */
+    public int getLockSize() {
+        return mLockSize;
+    }
+
+    /**
+     * @return The fewest cells of a pattern.
+     */
+    public int getMinLength() {
+        return mMinLength;
+    }
+
+    /**
+     * @return The most cells of a pattern.
+     */
+    public int getMaxLength() {
+        return mMaxLength;
+    }
+
+    /**
+     * @return The number of valid patterns, one more than the largest rank.
+     */
+    public long getPatternCount() {
+        return mPatternCount;
+    }
+
+    /**
+     * @param ids  The cell IDs.
+     * @param size The number of cells.
+     * @return Whether the pattern is valid, and within the length range.
+     */
+    public boolean isValid(byte[] ids, int size) {
+        if (size < mMinLength || size > mMaxLength) {
+            return false;
+        }
+        int visited = 0;
+        int last = -1;
+        for (int i = 0; i < size; i++) {
+            final int id = ids[i];
+            if (id < 0 || id >= mCellCount || last >= 0 && !canMove(visited, last, id)) {
+                return false;
+            }
+            visited |= 1 << id;
+            last = id;
+        }
+        return true;
+    }
+
+    /**
+     * @param ids  The cell IDs.
+     * @param size The number of cells.
+     * @return The rank of the pattern.
+     * @throws IllegalArgumentException if the pattern is not {@link #isValid(byte[], int) valid}.
+     */
+    public long rank(byte[] ids, int size) {
+        if (!isValid(ids, size)) {
+            throw new IllegalArgumentException("not a valid pattern of " + mMinLength + "-" + mMaxLength
+                    + " cells on the " + mLockSize + "x" + mLockSize + " grid");
+        }
+        final int cellCount = mCellCount;
+        int last = ids[0];
+        long rank = 0;
+        for (int first = 0; first < last; first++) {
+            rank += mCounts[(1 << first) * cellCount + first];
+        }
+        int visited = 1 << last;
+        for (int i = 1; i < size; i++) {
+            final int id = ids[i];
+            if (i >= mMinLength) {
+                // the pattern ending here comes first
+                rank++;
+            }
+            for (int next = 0; next < id; next++) {
+                if (canMove(visited, last, next)) {
+                    rank += mCounts[(visited | 1 << next) * cellCount + next];
+                }
+            }
+            visited |= 1 << id;
+            last = id;
+        }
+        return rank;
+    }
+
+    /**
+     * @param pattern The pattern, on the grid of the codec.
+     * @return The rank of the pattern.
+     * @throws IllegalArgumentException if the pattern is not valid, or not on the grid of the codec.
+     */
+    public long rank(CompactPattern pattern) {
+        if (pattern.getLockSize() != mLockSize) {
+            throw new IllegalArgumentException("pattern is not on the " + mLockSize + "x" + mLockSize + " grid");
+        }
+        final byte[] ids = new byte[mCellCount];
+        pattern.copyIds(ids, 0);
+        return rank(ids, pattern.size());
+    }
+
+    /**
+     * @param rank A rank, in range 0-{@link #getPatternCount()}{@code - 1}.
+     * @param dest Receives the cell IDs of the pattern, with room for {@link #getMaxLength()}.
+     * @return The number of cells of the pattern.
+     */
+    public int unrank(long rank, byte[] dest) {
+        if (rank < 0 || rank >= mPatternCount) {
+            throw new IllegalArgumentException("rank must be in range 0-" + (mPatternCount - 1));
+        }
+        final int cellCount = mCellCount;
+        int last = 0;
+        while (rank >= mCounts[(1 << last) * cellCount + last]) {
+            rank -= mCounts[(1 << last) * cellCount + last];
+            last++;
+        }
+        dest[0] = (byte) last;
+        int size = 1;
+        int visited = 1 << last;
+        while (true) {
+            if (size >= mMinLength) {
+                if (rank == 0) {
+                    return size;
+                }
+                rank--;
+            }
+            int next = 0;
+            while (true) {
+                if (canMove(visited, last, next)) {
+                    final long count = mCounts[(visited | 1 << next) * cellCount + next];
+                    if (rank < count) {
+                        break;
+                    }
+                    rank -= count;
+                }
+                next++;
+            }
+            dest[size++] = (byte) next;
+            visited |= 1 << next;
+            last = next;
+        }
+    }
+
+    /**
+     * @return Whether a pattern of the visited cells, ending on the last one, may go on with the next one.
+     */
+    private boolean canMove(int visited, int last, int next) {
+        return (visited & 1 << next) == 0 && (mGaps[last * mCellCount + next] & ~visited) == 0;
+    }
+
+    private static long add(long a, long b) {
+        if (a > Long.MAX_VALUE - b) {
+            throw new IllegalArgumentException("too many patterns to rank in a long");
+        }
+        return a + b;
+    }
+}
@@ -0,0 +1,287 @@
+package com.amnix.materiallockview;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Walks every valid pattern of a grid within a length range: distinct cells, every move only passing over cells
+ * already in the pattern, as {@code MaterialLockView} enforces by adding the cells in between (see {@link
+ * LockGrid#getGapCells(int, int, int, int[])}).
+ * <p/>
+ * The walk is a depth-first search split into fork-join tasks on its first {@link #SPLIT_DEPTH} cells, so a {@link
+ * ForkJoinPool} balances it over all its threads by work stealing. Patterns are never stored: each task only keeps
+ * the pattern it is extending, so memory doesn't grow with the number of patterns.
+ * <p/>
+ * {@link #computeStatistics(ForkJoinPool)} only walks the patterns starting from one cell of each class of cells the
+ * 8 symmetries of the square (rotations and mirrors) map onto each other, e.g. from a corner, an edge and the center of
+ * the 3x3 grid, and derives the others by symmetry. The cost of a walk is still proportional to the number of patterns
+ * walked, 389,112 for the Android patterns of the 3x3 grid but trillions on the 4x4 one: bound the length on larger
+ * grids, or count with {@link PatternRankCodec}.
+ * <p/>
+ * {@link ForkJoinPool} and {@link RecursiveTask} are Java 7 classes, which Android only has from API 21: use this
+ * class on the JVM (tests, tools, benchmarks) or on API 21 and up.
+ */
+public final class PatternSpace {
+
+    /**
+     * Receives the patterns of a walk. It may be called from several threads at once.
+     */
+    public interface PatternConsumer {
+
+        /**
+         * @param ids  The cell IDs, only valid during the call.
+         * @param size The number of cells.
+         */
+        void accept(byte[] ids, int size);
+
+    }
+
+    /**
+     * The number of first cells of a pattern each of which gets its own task.
+     */
+    static final int SPLIT_DEPTH = 2;
+
+    private final int mLockSize;
+    private final int mCellCount;
+    private final int mMinLength;
+    private final int mMaxLength;
+
+    /**
+     * For every pair of cells {@code from * cellCount + to}, the IDs of the cells in between.
+     */
+    private final int[][] mGaps;
+
+    /**
+     * The 8 symmetries of the grid, each mapping every cell ID to the ID of its image.
+     */
+    private final int[][] mSymmetries;
+
+    /**
+     * @param lockSize  The number of rows (and columns) of the grid.
+     * @param minLength The fewest cells of a pattern.
+     * @param maxLength The most cells of a pattern.
+     */
+    public PatternSpace(int lockSize, int minLength, int maxLength) {
+        LockGrid.checkLockSize(lockSize);
+        final int cellCount = lockSize * lockSize;
+        if (minLength < 1 || minLength > maxLength || maxLength > cellCount) {
+            throw new IllegalArgumentException("lengths must be in range 1-" + cellCount
+                    + ", min length not above max length");
+        }
+        mLockSize = lockSize;
+        mCellCount = cellCount;
+        mMinLength = minLength;
+        mMaxLength = maxLength;
+
+        mGaps = new int[cellCount * cellCount][];
+        final int[] gapCells = new int[LockGrid.MAX_GAP_CELLS];
+        for (int from = 0; from < cellCount; from++) {
+            for (int to = 0; to < cellCount; to++) {
+                final int gapCount = LockGrid.getGapCells(from, to, lockSize, gapCells);
+                mGaps[from * cellCount + to] = Arrays.copyOf(gapCells, gapCount);
+            }
+        }
+
+        mSymmetries = new int[8][cellCount];
+        final int last = lockSize - 1;
+        for (int row = 0; row < lockSize; row++) {
+            for (int column = 0; column < lockSize; column++) {
+                final int id = LockGrid.getId(row, column, lockSize);
+                mSymmetries[0][id] = id;
+                mSymmetries[1][id] = LockGrid.getId(column, last - row, lockSize);
+                mSymmetries[2][id] = LockGrid.getId(last - row, last - column, lockSize);
+                mSymmetries[3][id] = LockGrid.getId(last - column, row, lockSize);
+                mSymmetries[4][id] = LockGrid.getId(row, last - column, lockSize);
+                mSymmetries[5][id] = LockGrid.getId(last - row, column, lockSize);
+                mSymmetries[6][id] = LockGrid.getId(column, row, lockSize);
+                mSymmetries[7][id] = LockGrid.getId(last - column, last - row, lockSize);
+            }
+        }
+    }
+
+    /**
+     * @return The number of rows (and columns) of the grid.
+     */
+    public int getLockSize() {
+        return mLockSize;
+    }
+
+    /**
+     * @return The fewest cells of a pattern.
+     */
+    public int getMinLength() {
+        return mMinLength;
+    }
+
+    /**
+     * @return The most cells of a pattern.
+     */
+    public int getMaxLength() {
+        return mMaxLength;
+    }
+
+    /**
+     * Counts the patterns by length, and how often they go through each cell and move between two cells.
+     *
+     * @param pool Runs the walk.
+     * @return The statistics.
+     */
+    public PatternStatistics computeStatistics(ForkJoinPool pool) {
+        return pool.invoke(new WalkTask(new byte[0], null, true));
+    }
+
+    /**
+     * Gives every pattern to a consumer, in no particular order, from the threads of the pool.
+     *
+     * @param pool     Runs the walk.
+     * @param consumer Receives the patterns.
+     */
+    public void forEach(ForkJoinPool pool, PatternConsumer consumer) {
+        pool.invoke(new WalkTask(new byte[0], consumer, false));
+    }
+
+    /**
+     * Walks the patterns starting with a prefix, giving them to the consumer, or to the statistics if there is no
+     * consumer.
+     */
+    private void walk(byte[] ids, boolean[] visited, int size, PatternConsumer consumer,
+                      PatternStatistics statistics) {
+        if (size >= mMinLength) {
+            if (consumer != null) {
+                consumer.accept(ids, size);
+            } else {
+                statistics.record(ids, size);
+            }
+        }
+        if (size == mMaxLength) {
+            return;
+        }
+        final int last = ids[size - 1];
+        for (int next = 0; next < mCellCount; next++) {
+            if (canMove(visited, last, next)) {
+                ids[size] = (byte) next;
+                visited[next] = true;
+                walk(ids, visited, size + 1, consumer, statistics);
+                visited[next] = false;
+            }
+        }
+    }
+
+    private boolean canMove(boolean[] visited, int last, int next) {
+        if (visited[next]) {
+            return false;
+        }
+        for (int gapCell : mGaps[last * mCellCount + next]) {
+            if (!visited[gapCell]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return Whether the cell has the smallest ID among its images by the symmetries.
+     */
+    private boolean isOrbitRepresentative(int id) {
+        for (int[] symmetry : mSymmetries) {
+            if (symmetry[id] < id) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The number of symmetries mapping the cell onto itself.
+     */
+    private int getStabilizerSize(int id) {
+        int size = 0;
+        for (int[] symmetry : mSymmetries) {
+            if (symmetry[id] == id) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Walks the patterns starting with a prefix: splits into one task per next cell while the prefix is shorter than
+     * {@link #SPLIT_DEPTH}, walks them itself after that.
+     */
+    private final class WalkTask extends RecursiveTask<PatternStatistics> {
+
+        /**
+         * Tasks are only serializable through {@link java.util.concurrent.ForkJoinTask}, they are never serialized.
+         */
+        private static final long serialVersionUID = 1L;
+
+        private final byte[] mPrefix;
+        private final PatternConsumer mConsumer;
+
+        /**
+         * Whether to only walk from a representative of each class of symmetric cells, for the statistics. Only used
+         * by the task of the empty prefix.
+         */
+        private final boolean mReduceSymmetry;
+
+        WalkTask(byte[] prefix, PatternConsumer consumer, boolean reduceSymmetry) {
+            mPrefix = prefix;
+            mConsumer = consumer;
+            mReduceSymmetry = reduceSymmetry;
+        }
+
+        @Override
+        protected PatternStatistics compute() {
+            final int size = mPrefix.length;
+            final boolean[] visited = new boolean[mCellCount];
+            for (byte id : mPrefix) {
+                visited[id] = true;
+            }
+            final PatternStatistics statistics = mConsumer == null ? new PatternStatistics(mLockSize) : null;
+            if (size >= SPLIT_DEPTH || size == mMaxLength) {
+                final byte[] ids = Arrays.copyOf(mPrefix, mMaxLength);
+                walk(ids, visited, size, mConsumer, statistics);
+                return statistics;
+            }
+
+            if (size >= mMinLength) {
+                if (mConsumer != null) {
+                    mConsumer.accept(mPrefix, size);
+                } else {
+                    statistics.record(mPrefix, size);
+                }
+            }
+            final List<WalkTask> tasks = new ArrayList<WalkTask>();
+            for (int next = 0; next < mCellCount; next++) {
+                if (size == 0 ? !mReduceSymmetry || isOrbitRepresentative(next)
+                        : canMove(visited, mPrefix[size - 1], next)) {
+                    final byte[] prefix = Arrays.copyOf(mPrefix, size + 1);
+                    prefix[size] = (byte) next;
+                    tasks.add(new WalkTask(prefix, mConsumer, false));
+                }
+            }
+            invokeAll(tasks);
+            if (statistics == null) {
+                return null;
+            }
+            for (WalkTask task : tasks) {
+                if (!mReduceSymmetry) {
+                    statistics.add(task.join());
+                    continue;
+                }
+                // the patterns from the cells symmetric to the first one are the images of these: each of them is
+                // the image by as many symmetries as map the first cell onto itself
+                final PatternStatistics images = new PatternStatistics(mLockSize);
+                for (int[] symmetry : mSymmetries) {
+                    images.addImage(task.join(), symmetry);
+                }
+                images.divide(getStabilizerSize(task.mPrefix[0]));
+                statistics.add(images);
+            }
+            return statistics;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.amnix.materiallockview;
+
+/**
+ * Statistics of a set of patterns, as gathered by {@link PatternSpace#computeStatistics}: how many patterns there are
+ * of each length, how many go through each cell, and how many move directly from one cell to another.
+ */
+public final class PatternStatistics {
+
+    private final int mLockSize;
+    private final int mCellCount;
+    private final long[] mLengthCounts;
+    private final long[] mCellCounts;
+    private final long[] mTransitionCounts;
+
+    PatternStatistics(int lockSize) {
+        mLockSize = lockSize;
+        mCellCount = lockSize * lockSize;
+        mLengthCounts = new long[mCellCount + 1];
+        mCellCounts = new long[mCellCount];
+        mTransitionCounts = new long[mCellCount * mCellCount];
+    }
+
+    /**
+     * @return The number of rows (and columns) of the grid.
+     */
+    public int getLockSize() {
+        return mLockSize;
+    }
+
+    /**
+     * @return The number of patterns.
+     */
+    public long getPatternCount() {
+        long count = 0;
+        for (long lengthCount : mLengthCounts) {
+            count += lengthCount;
+        }
+        return count;
+    }
+
+    /**
+     * @param length A number of cells.
+     * @return The number of patterns of that many cells.
+     */
+    public long getPatternCount(int length) {
+        return length >= 0 && length < mLengthCounts.length ? mLengthCounts[length] : 0;
+    }
+
+    /**
+     * @param id The ID of a cell.
+     * @return The number of patterns going through the cell.
+     */
+    public long getCellFrequency(int id) {
+        return mCellCounts[id];
+    }
+
+    /**
+     * @param fromId The ID of the cell the move starts from.
+     * @param toId   The ID of the cell the move ends on.
+     * @return The number of patterns moving from one cell right to the other.
+     */
+    public long getTransitionFrequency(int fromId, int toId) {
+        return mTransitionCounts[fromId * mCellCount + toId];
+    }
+
+    /**
+     * @return The entropy of a pattern picked uniformly among all, in bits: the base 2 logarithm of the number of
+     * patterns.
+     */
+    public double getEntropyBits() {
+        final long count = getPatternCount();
+        return count == 0 ? 0 : Math.log(count) / Math.log(2);
+    }
+
+    void record(byte[] ids, int size) {
+        mLengthCounts[size]++;
+        mCellCounts[ids[0]]++;
+        for (int i = 1; i < size; i++) {
+            mCellCounts[ids[i]]++;
+            mTransitionCounts[ids[i - 1] * mCellCount + ids[i]]++;
+        }
+    }
+
+    void add(PatternStatistics other) {
+        for (int i = 0; i < mLengthCounts.length; i++) {
+            mLengthCounts[i] += other.mLengthCounts[i];
+        }
+        for (int i = 0; i < mCellCount; i++) {
+            mCellCounts[i] += other.mCellCounts[i];
+        }
+        for (int i = 0; i < mTransitionCounts.length; i++) {
+            mTransitionCounts[i] += other.mTransitionCounts[i];
+        }
+    }
+
+    /**
+     * Adds the statistics of the image of other patterns by a symmetry of the grid.
+     *
+     * @param cells Maps every cell ID to the ID of its image.
+     */
+    void addImage(PatternStatistics other, int[] cells) {
+        for (int i = 0; i < mLengthCounts.length; i++) {
+            mLengthCounts[i] += other.mLengthCounts[i];
+        }
+        for (int i = 0; i < mCellCount; i++) {
+            mCellCounts[cells[i]] += other.mCellCounts[i];
+        }
+        for (int from = 0; from < mCellCount; from++) {
+            for (int to = 0; to < mCellCount; to++) {
+                mTransitionCounts[cells[from] * mCellCount + cells[to]]
+                        += other.mTransitionCounts[from * mCellCount + to];
+            }
+        }
+    }
+
+    void divide(int divisor) {
+        for (int i = 0; i < mLengthCounts.length; i++) {
+            mLengthCounts[i] /= divisor;
+        }
+        for (int i = 0; i < mCellCount; i++) {
+            mCellCounts[i] /= divisor;
+        }
+        for (int i = 0; i < mTransitionCounts.length; i++) {
+            mTransitionCounts[i] /= divisor;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.amnix.materiallockview;
+
+/**
+ * Extrapolates where a finger will be a little ahead of its last touch sample, so that what follows the finger can be
+ * drawn where it is at the next frame rather than where it was at the last event.
+ * <p/>
+ * Position and velocity are tracked by an alpha-beta filter (a steady-state Kalman filter for constant velocity),
+ * which follows a moving finger closely while damping the jitter of the samples. How far a prediction may lead the
+ * last sample is bounded by {@link #setMaxDistance(float)}, which bounds its error on sudden turns and stops. No
+ * method allocates.
+ */
+public final class TouchPredictor {
+
+    /**
+     * How much of a sample's distance to the filter's estimate goes into the position, and into the velocity.
+     */
+    private static final double ALPHA = 0.6;
+    private static final double BETA = 0.25;
+
+    private float mMaxDistance = Float.MAX_VALUE;
+
+    private int mSampleCount;
+    private float mLastX;
+    private float mLastY;
+    private long mLastTime;
+
+    private double mX;
+    private double mY;
+    private double mVelocityX;
+    private double mVelocityY;
+
+    private boolean mHasPrediction;
+    private boolean mPredictionPending;
+    private long mPredictionTime;
+    private float mPredictedX;
+    private float mPredictedY;
+
+    /**
+     * @param maxDistance How far a prediction may be from the last sample, in pixels.
+     */
+    public void setMaxDistance(float maxDistance) {
+        if (maxDistance < 0) {
+            throw new IllegalArgumentException("max distance must not be negative");
+        }
+        mMaxDistance = maxDistance;
+    }
+
+    /**
+     * @return How far a prediction may be from the last sample, in pixels.
+     */
+    public float getMaxDistance() {
+        return mMaxDistance;
+    }
+
+    /**
+     * Forgets all samples, to start following a new gesture.
+     */
+    public void reset() {
+        mSampleCount = 0;
+        mVelocityX = 0;
+        mVelocityY = 0;
+        mHasPrediction = false;
+        mPredictionPending = false;
+    }
+
+    /**
+     * Adds a touch sample. Samples must come in time order.
+     *
+     * @param x         The x of the sample.
+     * @param y         The y of the sample.
+     * @param timeNanos The time of the sample, in nanoseconds.
+     * @return The distance between the last prediction and where the finger was at the predicted time, if this sample
+     * is the first at or after that time, {@link Float#NaN} otherwise.
+     */
+    public float addSample(float x, float y, long timeNanos) {
+        float error = Float.NaN;
+        if (mSampleCount == 0) {
+            mX = x;
+            mY = y;
+        } else {
+            final long dt = timeNanos - mLastTime;
+            if (mPredictionPending && timeNanos >= mPredictionTime) {
+                mPredictionPending = false;
+                final float t = dt > 0 ? (float) (mPredictionTime - mLastTime) / dt : 1f;
+                final float actualX = mLastX + t * (x - mLastX);
+                final float actualY = mLastY + t * (y - mLastY);
+                error = (float) Math.hypot(actualX - mPredictedX, actualY - mPredictedY);
+            }
+            if (dt > 0) {
+                final double residualX = x - (mX + mVelocityX * dt);
+                final double residualY = y - (mY + mVelocityY * dt);
+                mX += mVelocityX * dt + ALPHA * residualX;
+                mY += mVelocityY * dt + ALPHA * residualY;
+                mVelocityX += BETA * residualX / dt;
+                mVelocityY += BETA * residualY / dt;
+            } else {
+                mX = x;
+                mY = y;
+            }
+        }
+        mLastX = x;
+        mLastY = y;
+        mLastTime = timeNanos;
+        mSampleCount++;
+        return error;
+    }
+
+    /**
+     * Predicts where the finger will be some time after the last sample, see {@link #getPredictedX()} and
+     * {@link #getPredictedY()}. The next sample at or after that time measures the error of the prediction.
+     *
+     * @param horizonNanos How far after the last sample to predict, in nanoseconds.
+     */
+    public void predict(long horizonNanos) {
+        if (mSampleCount == 0) {
+            throw new IllegalStateException("no sample to predict from");
+        }
+        float x = (float) (mX + mVelocityX * horizonNanos);
+        float y = (float) (mY + mVelocityY * horizonNanos);
+        final float dx = x - mLastX;
+        final float dy = y - mLastY;
+        final float distance = (float) Math.hypot(dx, dy);
+        if (distance > mMaxDistance) {
+            final float scale = mMaxDistance / distance;
+            x = mLastX + dx * scale;
+            y = mLastY + dy * scale;
+        }
+        mPredictedX = x;
+        mPredictedY = y;
+        mHasPrediction = true;
+        mPredictionTime = mLastTime + horizonNanos;
+        mPredictionPending = horizonNanos > 0;
+    }
+
+    /**
+     * @return Whether there was a prediction since the last {@link #reset()}.
+     */
+    public boolean hasPrediction() {
+        return mHasPrediction;
+    }
+
+    /**
+     * @return The x of the last prediction.
+     */
+    public float getPredictedX() {
+        return mPredictedX;
+    }
+
+    /**
+     * @return The y of the last prediction.
+     */
+    public float getPredictedY() {
+        return mPredictedY;
+    }
+}
@@ -0,0 +1,47 @@
+package com.amnix.materiallockview;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CellBitSetTest {
+
+    @Test
+    public void coversEveryCellOfTheLargestGrid() throws Exception {
+        final CellBitSet set = new CellBitSet();
+        assertTrue(set.isEmpty());
+        for (int id = 0; id < LockGrid.MAX_MATRIX_SIZE; id += 2) {
+            set.add(id);
+        }
+        for (int id = 0; id < LockGrid.MAX_MATRIX_SIZE; id++) {
+            assertEquals("cell " + id, id % 2 == 0, set.contains(id));
+        }
+        assertEquals((LockGrid.MAX_MATRIX_SIZE + 1) / 2, set.size());
+
+        set.remove(64);
+        set.remove(0);
+        assertFalse(set.contains(64));
+        assertFalse(set.contains(0));
+        assertTrue(set.contains(66));
+        assertTrue(set.contains(2));
+
+        set.clear();
+        assertTrue(set.isEmpty());
+        assertEquals(0, set.size());
+    }
+
+    @Test
+    public void keepsLowAndHighIdsApart() throws Exception {
+        final CellBitSet set = new CellBitSet();
+        set.add(70);
+        assertFalse(set.contains(6));
+        assertEquals(0L, set.getLowBits());
+        assertEquals(1L << 6, set.getHighBits());
+
+        final CellBitSet copy = new CellBitSet();
+        copy.set(set);
+        assertEquals(set, copy);
+        copy.add(6);
+        assertFalse(set.equals(copy));
+    }
+}
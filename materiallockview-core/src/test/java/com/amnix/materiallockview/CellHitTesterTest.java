@@ -0,0 +1,133 @@
+package com.amnix.materiallockview;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class CellHitTesterTest {
+
+    private static final float PADDING_LEFT = 16f;
+    private static final float PADDING_TOP = 24f;
+    private static final float GRID_SIZE = 720f;
+    private static final float HIT_FACTOR = 0.6f;
+
+    private static CellHitTester newHitTester(int lockSize) {
+        final CellHitTester hitTester = new CellHitTester();
+        final float square = GRID_SIZE / lockSize;
+        hitTester.setGeometry(PADDING_LEFT, PADDING_TOP, square, square, lockSize, HIT_FACTOR);
+        return hitTester;
+    }
+
+    @Test
+    public void matchesLoopHitTesting() throws Exception {
+        for (int lockSize = LockGrid.MIN_LOCK_SIZE; lockSize <= LockGrid.MAX_LOCK_SIZE; lockSize++) {
+            final float square = GRID_SIZE / lockSize;
+            final CellHitTester hitTester = newHitTester(lockSize);
+            final LoopHitTester loop = new LoopHitTester(PADDING_LEFT, PADDING_TOP, square, square,
+                    lockSize, HIT_FACTOR);
+            for (float v = -10f; v < GRID_SIZE + 40f; v += 0.37f) {
+                assertEquals("row at " + v, loop.getRowHit(v), hitTester.getRowHit(v));
+                assertEquals("column at " + v, loop.getColumnHit(v), hitTester.getColumnHit(v));
+            }
+        }
+    }
+
+    @Test
+    public void resolvesCellIds() throws Exception {
+        final int lockSize = 6;
+        final float square = GRID_SIZE / lockSize;
+        final CellHitTester hitTester = newHitTester(lockSize);
+        for (int row = 0; row < lockSize; row++) {
+            for (int column = 0; column < lockSize; column++) {
+                final float x = PADDING_LEFT + (column + 0.5f) * square;
+                final float y = PADDING_TOP + (row + 0.5f) * square;
+                assertEquals(row * lockSize + column, hitTester.getCellHit(x, y));
+            }
+        }
+        assertEquals(-1, hitTester.getCellHit(PADDING_LEFT + 1f, PADDING_TOP + square / 2f));
+        assertEquals(-1, hitTester.getCellHit(PADDING_LEFT + GRID_SIZE + 1f, PADDING_TOP + square / 2f));
+    }
+
+    @Test
+    public void circularRegionsRejectHitBoxCorners() throws Exception {
+        final float square = GRID_SIZE / LockGrid.LOCK_SIZE;
+        final CellHitTester hitTester = newHitTester(LockGrid.LOCK_SIZE);
+        final float cornerOffset = square * HIT_FACTOR / 2f - 1f;
+        final float x = PADDING_LEFT + square / 2f + cornerOffset;
+        final float y = PADDING_TOP + square / 2f + cornerOffset;
+
+        assertEquals(0, hitTester.getCellHit(x, y));
+        hitTester.setCircular(true);
+        assertEquals(-1, hitTester.getCellHit(x, y));
+        assertEquals(0, hitTester.getCellHit(PADDING_LEFT + square / 2f + cornerOffset, PADDING_TOP + square / 2f));
+    }
+
+    @Test
+    public void segmentCollectsCrossedCellsInOrder() throws Exception {
+        final float square = GRID_SIZE / 4;
+        final CellHitTester hitTester = newHitTester(4);
+        final int[] hits = new int[CellHitTester.MAX_SEGMENT_HITS];
+
+        // one sample left of the grid, the next one right of it
+        final float rowCenter = PADDING_TOP + square * 1.5f;
+        assertArrayEquals(new int[]{4, 5, 6, 7}, Arrays.copyOf(hits,
+                hitTester.getCellHits(0f, rowCenter, PADDING_LEFT + GRID_SIZE + 10f, rowCenter, hits)));
+        assertArrayEquals(new int[]{7, 6, 5, 4}, Arrays.copyOf(hits,
+                hitTester.getCellHits(PADDING_LEFT + GRID_SIZE + 10f, rowCenter, 0f, rowCenter, hits)));
+
+        // main diagonal
+        assertArrayEquals(new int[]{0, 5, 10, 15}, Arrays.copyOf(hits,
+                hitTester.getCellHits(PADDING_LEFT, PADDING_TOP, PADDING_LEFT + GRID_SIZE, PADDING_TOP + GRID_SIZE,
+                        hits)));
+
+        // along the gap between two rows
+        final float between = PADDING_TOP + square;
+        assertEquals(0, hitTester.getCellHits(0f, between, PADDING_LEFT + GRID_SIZE, between, hits));
+
+        // a point
+        assertArrayEquals(new int[]{5}, Arrays.copyOf(hits, hitTester.getCellHits(PADDING_LEFT + square * 1.5f, rowCenter,
+                PADDING_LEFT + square * 1.5f, rowCenter, hits)));
+    }
+
+    @Test
+    public void segmentFindsEveryCellDenseSamplingFinds() throws Exception {
+        final Random random = new Random(7);
+        final int[] hits = new int[CellHitTester.MAX_SEGMENT_HITS];
+        for (int lockSize = LockGrid.MIN_LOCK_SIZE; lockSize <= LockGrid.MAX_LOCK_SIZE; lockSize++) {
+            final CellHitTester hitTester = newHitTester(lockSize);
+            for (int circular = 0; circular < 2; circular++) {
+                hitTester.setCircular(circular == 1);
+                for (int n = 0; n < 200; n++) {
+                    final float x0 = random.nextFloat() * (GRID_SIZE + 100f) - 20f;
+                    final float y0 = random.nextFloat() * (GRID_SIZE + 100f) - 20f;
+                    final float x1 = random.nextFloat() * (GRID_SIZE + 100f) - 20f;
+                    final float y1 = random.nextFloat() * (GRID_SIZE + 100f) - 20f;
+
+                    final List<Integer> sampled = new ArrayList<>();
+                    for (int step = 0; step <= 4000; step++) {
+                        final float t = step / 4000f;
+                        final int id = hitTester.getCellHit(x0 + (x1 - x0) * t, y0 + (y1 - y0) * t);
+                        if (id >= 0 && !sampled.contains(id)) {
+                            sampled.add(id);
+                        }
+                    }
+
+                    final int count = hitTester.getCellHits(x0, y0, x1, y1, hits);
+                    int next = 0;
+                    for (int i = 0; i < count && next < sampled.size(); i++) {
+                        if (hits[i] == sampled.get(next)) {
+                            next++;
+                        }
+                    }
+                    assertEquals("segment " + x0 + "," + y0 + " -> " + x1 + "," + y1,
+                            sampled.size(), next);
+                }
+            }
+        }
+    }
+}
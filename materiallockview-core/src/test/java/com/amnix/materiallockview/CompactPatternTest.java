@@ -0,0 +1,84 @@
+package com.amnix.materiallockview;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CompactPatternTest {
+
+    private static CompactPattern newPattern(int lockSize, int... ids) {
+        final CompactPattern pattern = new CompactPattern();
+        pattern.reset(lockSize);
+        for (int id : ids) {
+            pattern.add(id);
+        }
+        return pattern;
+    }
+
+    @Test
+    public void keepsIdsAndSimplePattern() throws Exception {
+        final CompactPattern pattern = newPattern(3, 0, 4, 8, 5);
+        assertEquals(4, pattern.size());
+        assertEquals(8, pattern.getId(2));
+        assertEquals(1, pattern.getRow(3));
+        assertEquals(2, pattern.getColumn(3));
+        assertEquals("1596", pattern.toSimplePattern());
+        assertArrayEquals(new byte[]{0, 4, 8, 5}, pattern.toIdArray());
+
+        assertEquals("1AZ", newPattern(6, 0, 9, 34).toSimplePattern());
+    }
+
+    @Test
+    public void packsIncrementally() throws Exception {
+        for (int lockSize = LockGrid.MIN_LOCK_SIZE; lockSize <= LockGrid.MAX_LOCK_SIZE; lockSize++) {
+            final int bits = CompactPattern.bitsPerCell(lockSize);
+            final int matrixSize = lockSize * lockSize;
+            final CompactPattern pattern = newPattern(lockSize);
+            final byte[] ids = new byte[matrixSize];
+            for (int i = 0; i < matrixSize; i++) {
+                ids[i] = (byte) (matrixSize - 1 - i);
+                pattern.add(ids[i]);
+                final long packed = CompactPattern.pack(ids, i + 1, lockSize);
+                assertEquals(packed, pattern.getPacked());
+                if (bits * (i + 1) > Long.SIZE) {
+                    assertEquals(CompactPattern.NOT_PACKED, packed);
+                } else {
+                    assertTrue(packed >= 0);
+                    final byte[] unpacked = new byte[matrixSize];
+                    assertEquals(i + 1, CompactPattern.unpack(packed, lockSize, unpacked));
+                    for (int j = 0; j <= i; j++) {
+                        assertEquals(ids[j], unpacked[j]);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void packsEveryPatternOfTheDefaultGrid() throws Exception {
+        final CompactPattern pattern = newPattern(3, 8, 7, 6, 5, 4, 3, 2, 1, 0);
+        assertTrue(pattern.getPacked() != CompactPattern.NOT_PACKED);
+        assertEquals(4, CompactPattern.bitsPerCell(3));
+        assertEquals(7, CompactPattern.bitsPerCell(9));
+    }
+
+    @Test
+    public void copiesAnotherPattern() throws Exception {
+        final CompactPattern source = newPattern(5, 0, 6, 12, 24);
+        final CompactPattern copy = newPattern(3, 1, 2, 3, 4, 5);
+        copy.set(source);
+        source.add(18);
+
+        assertEquals(4, copy.size());
+        assertEquals(5, copy.getLockSize());
+        assertArrayEquals(new byte[]{0, 6, 12, 24}, copy.toIdArray());
+        assertEquals(newPattern(5, 0, 6, 12, 24).getPacked(), copy.getPacked());
+        copy.add(18);
+        assertEquals(source.getPacked(), copy.getPacked());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void rejectsIndexOutOfPattern() throws Exception {
+        newPattern(3, 1, 2).getId(2);
+    }
+}
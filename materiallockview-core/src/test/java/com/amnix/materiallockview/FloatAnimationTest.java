@@ -0,0 +1,40 @@
+package com.amnix.materiallockview;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FloatAnimationTest {
+
+    private static final long MS = 1000000L;
+
+    @Test
+    public void interpolatesOverTheDuration() throws Exception {
+        final FloatAnimation animation = new FloatAnimation(10f, 20f, 100);
+        animation.start(1000 * MS);
+
+        assertEquals(0f, animation.getFraction(990 * MS), 0f);
+        assertEquals(0.5f, animation.getFraction(1050 * MS), 1e-6f);
+        assertEquals(15f, animation.getValue(animation.getFraction(1050 * MS)), 1e-4f);
+        assertFalse(animation.isFinished(1099 * MS));
+
+        assertTrue(animation.isFinished(1100 * MS));
+        assertEquals(1f, animation.getFraction(2000 * MS), 0f);
+        assertEquals(20f, animation.getValue(1f), 0f);
+    }
+
+    @Test
+    public void keepsEasedFractionsOutOfRange() throws Exception {
+        final FloatAnimation animation = new FloatAnimation(0f, 10f, 100);
+        assertEquals(11f, animation.getValue(1.1f), 1e-4f);
+        assertEquals(-1f, animation.getValue(-0.1f), 1e-4f);
+    }
+
+    @Test
+    public void finishesAtOnceWithoutDuration() throws Exception {
+        final FloatAnimation animation = new FloatAnimation(0f, 1f, 0);
+        animation.start(0);
+        assertTrue(animation.isFinished(0));
+        assertEquals(1f, animation.getFraction(0), 0f);
+    }
+}
@@ -0,0 +1,32 @@
+package com.amnix.materiallockview;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class GridCellTest {
+
+    @Test
+    public void looksUpTheSameCellForEveryGridSize() throws Exception {
+        for (int lockSize = LockGrid.MIN_LOCK_SIZE; lockSize <= LockGrid.MAX_LOCK_SIZE; lockSize++) {
+            for (int id = 0; id < lockSize * lockSize; id++) {
+                final GridCell cell = GridCell.ofId(id, lockSize);
+                assertEquals(id / lockSize, cell.row);
+                assertEquals(id % lockSize, cell.column);
+                assertEquals(id, cell.getId(lockSize));
+                assertSame(cell, GridCell.of(cell.row, cell.column));
+                assertSame(cell, GridCell.ofIndex(cell.getIndex()));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsIdOutsideOfTheGrid() throws Exception {
+        GridCell.ofId(16, 4);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsCellOutsideOfTheLargestGrid() throws Exception {
+        GridCell.of(0, LockGrid.MAX_LOCK_SIZE);
+    }
+}
@@ -0,0 +1,61 @@
+package com.amnix.materiallockview;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class HistogramTest {
+
+    @Test
+    public void bucketsByPowersOfTwo() throws Exception {
+        assertEquals(0, Histogram.getBucketIndex(0));
+        assertEquals(1, Histogram.getBucketIndex(1));
+        assertEquals(2, Histogram.getBucketIndex(2));
+        assertEquals(2, Histogram.getBucketIndex(3));
+        assertEquals(3, Histogram.getBucketIndex(4));
+        assertEquals(Histogram.BUCKET_COUNT - 1, Histogram.getBucketIndex(Long.MAX_VALUE));
+        for (int i = 0; i < Histogram.BUCKET_COUNT; i++) {
+            assertEquals(i, Histogram.getBucketIndex(Histogram.getBucketUpperBound(i)));
+        }
+    }
+
+    @Test
+    public void keepsSummaryAndPercentiles() throws Exception {
+        final Histogram histogram = new Histogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        histogram.record(-5);
+
+        assertEquals(101, histogram.getCount());
+        assertEquals(5050, histogram.getSum());
+        assertEquals(0, histogram.getMin());
+        assertEquals(100, histogram.getMax());
+        assertEquals(1, histogram.getBucketValueCount(0));
+        // 32-63 share a bucket
+        assertEquals(32, histogram.getBucketValueCount(Histogram.getBucketIndex(40)));
+        // the median, 50, is in the 32-63 bucket
+        assertEquals(63, histogram.getPercentile(50));
+        assertEquals(100, histogram.getPercentile(100));
+        assertEquals(0, histogram.getPercentile(0));
+    }
+
+    @Test
+    public void resetsAndCopies() throws Exception {
+        final Histogram histogram = new Histogram();
+        histogram.record(7);
+        histogram.record(1000);
+
+        final Histogram copy = new Histogram();
+        copy.set(histogram);
+        histogram.reset();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getPercentile(99));
+        assertEquals(2, copy.getCount());
+        assertEquals(7, copy.getMin());
+        assertEquals(1000, copy.getMax());
+        assertEquals(503.5, copy.getMean(), 0);
+    }
+}
@@ -0,0 +1,52 @@
+package com.amnix.materiallockview;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class LockGridTest {
+
+    private static int[] gapCells(int fromId, int toId, int lockSize) {
+        final int[] dest = new int[LockGrid.MAX_GAP_CELLS];
+        return Arrays.copyOf(dest, LockGrid.getGapCells(fromId, toId, lockSize, dest));
+    }
+
+    @Test
+    public void fillsStraightGaps() throws Exception {
+        // 3x3: across a row, down a column, along a diagonal
+        assertArrayEquals(new int[]{1}, gapCells(0, 2, 3));
+        assertArrayEquals(new int[]{4}, gapCells(6, 2, 3));
+        assertArrayEquals(new int[]{5}, gapCells(8, 2, 3));
+        // 5x5: two steps of (1, 1) from 0 to 18 is (3, 3)
+        assertArrayEquals(new int[]{6, 12}, gapCells(0, 18, 5));
+        // 9x9: a whole row
+        assertArrayEquals(new int[]{1, 2, 3, 4, 5, 6, 7}, gapCells(0, 8, 9));
+    }
+
+    @Test
+    public void leavesNeighboursAndKnightMovesAlone() throws Exception {
+        assertEquals(0, gapCells(0, 1, 3).length);
+        assertEquals(0, gapCells(0, 4, 3).length);
+        assertEquals(0, gapCells(0, 5, 3).length);
+        assertEquals(0, gapCells(4, 4, 3).length);
+        // (0, 0) to (2, 3) on 4x4
+        assertEquals(0, gapCells(0, 11, 4).length);
+    }
+
+    @Test
+    public void mapsIdsToRowsAndColumns() throws Exception {
+        for (int lockSize = LockGrid.MIN_LOCK_SIZE; lockSize <= LockGrid.MAX_LOCK_SIZE; lockSize++) {
+            for (int id = 0; id < lockSize * lockSize; id++) {
+                assertEquals(id, LockGrid.getId(LockGrid.getRow(id, lockSize),
+                        LockGrid.getColumn(id, lockSize), lockSize));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnsupportedSizes() throws Exception {
+        LockGrid.checkLockSize(LockGrid.MAX_LOCK_SIZE + 1);
+    }
+}
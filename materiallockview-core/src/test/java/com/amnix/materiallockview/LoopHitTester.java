@@ -0,0 +1,65 @@
+package com.amnix.materiallockview;
+
+/**
+ * The row/column loops {@code MaterialLockView} used before {@link CellHitTester}, kept as the reference for tests
+ * and benchmarks.
+ */
+class LoopHitTester {
+
+    private final float mPaddingLeft, mPaddingTop;
+    private final float mSquareWidth, mSquareHeight;
+    private final int mLockSize;
+    private final float mHitFactor;
+
+    LoopHitTester(float paddingLeft, float paddingTop, float squareWidth, float squareHeight,
+                  int lockSize, float hitFactor) {
+        mPaddingLeft = paddingLeft;
+        mPaddingTop = paddingTop;
+        mSquareWidth = squareWidth;
+        mSquareHeight = squareHeight;
+        mLockSize = lockSize;
+        mHitFactor = hitFactor;
+    }
+
+    int getRowHit(float y) {
+        final float squareHeight = mSquareHeight;
+        float hitSize = squareHeight * mHitFactor;
+
+        float offset = mPaddingTop + (squareHeight - hitSize) / 2f;
+        for (int i = 0; i < mLockSize; i++) {
+
+            final float hitTop = offset + squareHeight * i;
+            if (y >= hitTop && y <= hitTop + hitSize) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    int getColumnHit(float x) {
+        final float squareWidth = mSquareWidth;
+        float hitSize = squareWidth * mHitFactor;
+
+        float offset = mPaddingLeft + (squareWidth - hitSize) / 2f;
+        for (int i = 0; i < mLockSize; i++) {
+
+            final float hitLeft = offset + squareWidth * i;
+            if (x >= hitLeft && x <= hitLeft + hitSize) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    int getCellHit(float x, float y) {
+        final int row = getRowHit(y);
+        if (row < 0) {
+            return -1;
+        }
+        final int column = getColumnHit(x);
+        if (column < 0) {
+            return -1;
+        }
+        return row * mLockSize + column;
+    }
+}
@@ -0,0 +1,73 @@
+package com.amnix.materiallockview;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PatternBuilderTest {
+
+    private final List<Integer> mAdded = new ArrayList<>();
+    private final PatternBuilder mBuilder = new PatternBuilder(new PatternBuilder.OnCellAddedListener() {
+
+        @Override
+        public void onCellAdded(int id) {
+            // the cell is already part of the pattern
+            assertEquals(id, mBuilder.getPattern().getId(mBuilder.size() - 1));
+            mAdded.add(id);
+        }
+
+    });
+
+    @Test
+    public void fillsTheCellsPassedOver() throws Exception {
+        mBuilder.reset(3);
+        assertEquals(1, mBuilder.addHit(0));
+        // corner to corner through the unvisited center
+        assertEquals(2, mBuilder.addHit(8));
+        // up the right column through the unvisited middle
+        assertEquals(2, mBuilder.addHit(2));
+        // back over the visited center
+        assertEquals(1, mBuilder.addHit(6));
+        assertEquals("159637", mBuilder.getPattern().toSimplePattern());
+        assertEquals(Arrays.asList(0, 4, 8, 5, 2, 6), mAdded);
+    }
+
+    @Test
+    public void skipsMissesAndCellsAlreadyAdded() throws Exception {
+        mBuilder.reset(4);
+        assertEquals(0, mBuilder.addHit(-1));
+        assertEquals(1, mBuilder.addHit(5));
+        assertEquals(0, mBuilder.addHit(5));
+        assertTrue(mBuilder.contains(5));
+        assertFalse(mBuilder.contains(6));
+        // on the 4x4 grid, 0 to 15 passes over 5, already added, and 10
+        assertEquals(1, mBuilder.addHit(0));
+        assertEquals(2, mBuilder.addHit(15));
+        assertEquals(Arrays.asList(5, 0, 10, 15), mAdded);
+        assertEquals(4, mBuilder.getPattern().getLockSize());
+    }
+
+    @Test
+    public void appendsWithoutFillingNorTelling() throws Exception {
+        mBuilder.reset(3);
+        mBuilder.append(0);
+        mBuilder.append(8);
+        assertEquals(2, mBuilder.size());
+        assertTrue(mBuilder.contains(8));
+        assertFalse(mBuilder.contains(4));
+        assertTrue(mAdded.isEmpty());
+
+        mBuilder.reset(3);
+        assertEquals(0, mBuilder.size());
+        assertFalse(mBuilder.contains(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnsupportedGrids() throws Exception {
+        mBuilder.reset(2);
+    }
+}
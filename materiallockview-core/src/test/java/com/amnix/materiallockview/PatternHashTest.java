@@ -0,0 +1,96 @@
+package com.amnix.materiallockview;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PatternHashTest {
+
+    private static final int ITERATIONS = 1000;
+
+    private static CompactPattern newPattern(int lockSize, int... ids) {
+        final CompactPattern pattern = new CompactPattern();
+        pattern.reset(lockSize);
+        for (int id : ids) {
+            pattern.add(id);
+        }
+        return pattern;
+    }
+
+    @Test
+    public void matchesOnlyTheHashedPattern() throws Exception {
+        final PatternHash stored = PatternHash.create(newPattern(3, 0, 4, 8, 5), ITERATIONS);
+
+        assertTrue(stored.matches(new byte[]{0, 4, 8, 5}, 4, 3));
+        assertFalse(stored.matches(new byte[]{0, 4, 8}, 3, 3));
+        assertFalse(stored.matches(new byte[]{0, 4, 8, 6}, 4, 3));
+        assertFalse(stored.matches(new byte[]{0, 4, 8, 5}, 4, 4));
+    }
+
+    @Test
+    public void saltsEveryHash() throws Exception {
+        final CompactPattern pattern = newPattern(3, 2, 1, 0);
+        assertFalse(PatternHash.create(pattern, ITERATIONS).encode()
+                .equals(PatternHash.create(pattern, ITERATIONS).encode()));
+    }
+
+    @Test
+    public void encodesAndDecodes() throws Exception {
+        final PatternHash stored = PatternHash.create(newPattern(5, 0, 6, 12, 18, 24), 7);
+        final PatternHash decoded = PatternHash.decode(stored.encode());
+
+        assertEquals(7, decoded.getIterations());
+        assertEquals(stored.encode(), decoded.encode());
+        assertTrue(decoded.matches(new byte[]{0, 6, 12, 18, 24}, 5, 5));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMalformedHashes() throws Exception {
+        PatternHash.decode("10:abc");
+    }
+
+    @Test
+    public void rejectsCorruptedHashes() throws Exception {
+        final String salt = repeat("ab", 16);
+        final String hash = repeat("cd", 32);
+        assertEquals(10000, PatternHash.decode("10000:" + salt + ":" + hash).getIterations());
+
+        assertRejected("10000::" + hash);
+        assertRejected("10000:" + salt.substring(2) + ":" + hash);
+        assertRejected("10000:" + salt + ":" + hash.substring(2));
+        assertRejected("10000:" + salt + ":" + hash + "ef");
+        assertRejected("10000:" + salt + ":-1" + hash.substring(2));
+        assertRejected("0:" + salt + ":" + hash);
+        assertRejected((PatternHash.MAX_ITERATIONS + 1) + ":" + salt + ":" + hash);
+        assertRejected("99999999999:" + salt + ":" + hash);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void capsTheIterations() throws Exception {
+        PatternHash.create(newPattern(3, 0, 1, 2), PatternHash.MAX_ITERATIONS + 1);
+    }
+
+    private static void assertRejected(String encoded) {
+        try {
+            PatternHash.decode(encoded);
+            fail("accepted " + encoded);
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    private static String repeat(String s, int count) {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.append(s);
+        }
+        return builder.toString();
+    }
+
+    @Test
+    public void comparesInConstantTime() throws Exception {
+        assertTrue(PatternHash.constantTimeEquals(new byte[]{1, 2, 3}, new byte[]{1, 2, 3}));
+        assertFalse(PatternHash.constantTimeEquals(new byte[]{1, 2, 3}, new byte[]{1, 2, 4}));
+        assertFalse(PatternHash.constantTimeEquals(new byte[]{1, 2, 3}, new byte[]{1, 2}));
+    }
+}
@@ -0,0 +1,108 @@
+package com.amnix.materiallockview;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PatternRankCodecTest {
+
+    @Test
+    public void countsTheAndroidPatterns() throws Exception {
+        // the well known number of Android unlock patterns, of 4 to 9 cells
+        assertEquals(389112, new PatternRankCodec(3, 4, 9).getPatternCount());
+        assertEquals(389497, new PatternRankCodec(3, 1, 9).getPatternCount());
+        assertEquals(9, new PatternRankCodec(3, 1, 1).getPatternCount());
+        assertEquals(56, new PatternRankCodec(3, 2, 2).getPatternCount());
+        assertEquals(140704, new PatternRankCodec(3, 9, 9).getPatternCount());
+    }
+
+    @Test
+    public void ranksEveryPatternInOrder() throws Exception {
+        final PatternRankCodec codec = new PatternRankCodec(3, 4, 9);
+        final byte[] ids = new byte[9];
+        final byte[] previous = new byte[9];
+        int previousSize = 0;
+        for (long rank = 0; rank < codec.getPatternCount(); rank++) {
+            final int size = codec.unrank(rank, ids);
+            assertTrue(codec.isValid(ids, size));
+            assertEquals(rank, codec.rank(ids, size));
+            if (rank > 0) {
+                assertTrue(compare(previous, previousSize, ids, size) < 0);
+            }
+            System.arraycopy(ids, 0, previous, 0, size);
+            previousSize = size;
+        }
+    }
+
+    @Test
+    public void roundTripsOnTheLargestGrid() throws Exception {
+        final PatternRankCodec codec = new PatternRankCodec(4, 1, 16);
+        assertTrue(codec.getPatternCount() > 0);
+        final Random random = new Random(42);
+        final byte[] ids = new byte[16];
+        for (int i = 0; i < 10000; i++) {
+            final long rank = (random.nextLong() >>> 1) % codec.getPatternCount();
+            final int size = codec.unrank(rank, ids);
+            assertEquals(rank, codec.rank(ids, size));
+        }
+        // the first pattern is the top left cell alone, the last one starts from the bottom right cell
+        assertEquals(0, codec.rank(new byte[]{0}, 1));
+        assertEquals(1, codec.unrank(0, ids));
+        codec.unrank(codec.getPatternCount() - 1, ids);
+        assertEquals(15, ids[0]);
+    }
+
+    @Test
+    public void ranksCompactPatterns() throws Exception {
+        final PatternRankCodec codec = new PatternRankCodec(3, 4, 9);
+        final CompactPattern pattern = new CompactPattern();
+        pattern.reset(3);
+        for (int id : new int[]{0, 4, 8, 5}) {
+            pattern.add(id);
+        }
+        assertEquals(codec.rank(new byte[]{0, 4, 8, 5}, 4), codec.rank(pattern));
+    }
+
+    @Test
+    public void rejectsInvalidPatterns() throws Exception {
+        final PatternRankCodec codec = new PatternRankCodec(3, 4, 9);
+        // jumps over the unvisited center
+        assertFalse(codec.isValid(new byte[]{0, 8, 1, 2}, 4));
+        // the center was visited first
+        assertTrue(codec.isValid(new byte[]{4, 0, 8, 1}, 4));
+        // repeats a cell
+        assertFalse(codec.isValid(new byte[]{0, 1, 2, 1}, 4));
+        // too short
+        assertFalse(codec.isValid(new byte[]{0, 1, 2}, 3));
+        // out of the grid
+        assertFalse(codec.isValid(new byte[]{0, 1, 2, 9}, 4));
+        try {
+            codec.rank(new byte[]{0, 8, 1, 2}, 4);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsRanksOutOfRange() throws Exception {
+        final PatternRankCodec codec = new PatternRankCodec(3, 4, 9);
+        codec.unrank(codec.getPatternCount(), new byte[9]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsLargerGrids() throws Exception {
+        new PatternRankCodec(5, 4, 9);
+    }
+
+    private static int compare(byte[] a, int aSize, byte[] b, int bSize) {
+        for (int i = 0; i < Math.min(aSize, bSize); i++) {
+            if (a[i] != b[i]) {
+                return a[i] - b[i];
+            }
+        }
+        return aSize - bSize;
+    }
+}
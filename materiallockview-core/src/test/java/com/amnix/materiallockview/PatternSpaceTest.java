@@ -0,0 +1,96 @@
+package com.amnix.materiallockview;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class PatternSpaceTest {
+
+    private final ForkJoinPool mPool = new ForkJoinPool(4);
+
+    @After
+    public void tearDown() throws Exception {
+        mPool.shutdown();
+    }
+
+    @Test
+    public void countsTheAndroidPatternsByLength() throws Exception {
+        final PatternStatistics statistics = new PatternSpace(3, 1, 9).computeStatistics(mPool);
+        final long[] counts = {0, 9, 56, 320, 1624, 7152, 26016, 72912, 140704, 140704};
+        for (int length = 0; length < counts.length; length++) {
+            assertEquals(counts[length], statistics.getPatternCount(length));
+        }
+        assertEquals(389497, statistics.getPatternCount());
+        assertEquals(Math.log(389497) / Math.log(2), statistics.getEntropyBits(), 1e-9);
+    }
+
+    @Test
+    public void agreesWithTheRankCodec() throws Exception {
+        for (int lockSize = 3; lockSize <= PatternRankCodec.MAX_LOCK_SIZE; lockSize++) {
+            final PatternStatistics statistics = new PatternSpace(lockSize, 2, 5).computeStatistics(mPool);
+            assertEquals(new PatternRankCodec(lockSize, 2, 5).getPatternCount(), statistics.getPatternCount());
+        }
+    }
+
+    @Test
+    public void derivesTheSameStatisticsBySymmetry() throws Exception {
+        for (int lockSize = 3; lockSize <= 4; lockSize++) {
+            final int cellCount = lockSize * lockSize;
+            final PatternSpace space = new PatternSpace(lockSize, 1, lockSize == 3 ? 9 : 5);
+            final AtomicLong count = new AtomicLong();
+            final PatternStatistics walked = new PatternStatistics(lockSize);
+            space.forEach(mPool, new PatternSpace.PatternConsumer() {
+
+                @Override
+                public void accept(byte[] ids, int size) {
+                    count.incrementAndGet();
+                    synchronized (walked) {
+                        walked.record(ids, size);
+                    }
+                }
+
+            });
+            final PatternStatistics reduced = space.computeStatistics(mPool);
+
+            assertEquals(count.get(), reduced.getPatternCount());
+            for (int length = 0; length <= cellCount; length++) {
+                assertEquals(walked.getPatternCount(length), reduced.getPatternCount(length));
+            }
+            for (int from = 0; from < cellCount; from++) {
+                assertEquals(walked.getCellFrequency(from), reduced.getCellFrequency(from));
+                for (int to = 0; to < cellCount; to++) {
+                    assertEquals(walked.getTransitionFrequency(from, to), reduced.getTransitionFrequency(from, to));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void followsTheGapRule() throws Exception {
+        final PatternStatistics statistics = new PatternSpace(3, 2, 2).computeStatistics(mPool);
+        // corner to opposite corner passes over the unvisited center
+        assertEquals(0, statistics.getTransitionFrequency(0, 8));
+        assertEquals(1, statistics.getTransitionFrequency(0, 5));
+        // to and from the 5 cells a corner reaches directly
+        assertEquals(10, statistics.getCellFrequency(0));
+    }
+
+    @Test
+    public void streamsOnlyTheLengthRange() throws Exception {
+        final AtomicLong count = new AtomicLong();
+        new PatternSpace(5, 3, 3).forEach(mPool, new PatternSpace.PatternConsumer() {
+
+            @Override
+            public void accept(byte[] ids, int size) {
+                assertEquals(3, size);
+                count.incrementAndGet();
+            }
+
+        });
+        assertEquals(count.get(), new PatternSpace(5, 3, 3).computeStatistics(mPool).getPatternCount());
+    }
+}
@@ -0,0 +1,76 @@
+package com.amnix.materiallockview;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TouchPredictorTest {
+
+    private static final long MS = 1000000L;
+
+    @Test
+    public void followsAConstantVelocity() throws Exception {
+        final TouchPredictor predictor = new TouchPredictor();
+        // 1 pixel per millisecond to the right, 0.5 down, sampled every 8 ms
+        for (int i = 0; i <= 40; i++) {
+            predictor.addSample(i * 8f, i * 4f, i * 8 * MS);
+        }
+        predictor.predict(16 * MS);
+        assertEquals(336f, predictor.getPredictedX(), 1f);
+        assertEquals(168f, predictor.getPredictedY(), 0.5f);
+    }
+
+    @Test
+    public void staysOnTheLastSampleWithoutMotion() throws Exception {
+        final TouchPredictor predictor = new TouchPredictor();
+        predictor.addSample(50f, 60f, 0);
+        predictor.predict(16 * MS);
+        assertEquals(50f, predictor.getPredictedX(), 0f);
+        assertEquals(60f, predictor.getPredictedY(), 0f);
+    }
+
+    @Test
+    public void boundsTheLeadOverTheLastSample() throws Exception {
+        final TouchPredictor predictor = new TouchPredictor();
+        predictor.setMaxDistance(10f);
+        for (int i = 0; i <= 40; i++) {
+            predictor.addSample(i * 40f, 0f, i * 8 * MS);
+        }
+        predictor.predict(16 * MS);
+        assertEquals(1610f, predictor.getPredictedX(), 1e-3f);
+        assertEquals(0f, predictor.getPredictedY(), 1e-3f);
+    }
+
+    @Test
+    public void measuresTheErrorAtThePredictedTime() throws Exception {
+        final TouchPredictor predictor = new TouchPredictor();
+        predictor.addSample(0f, 0f, 0);
+        predictor.predict(10 * MS);
+        assertTrue(Float.isNaN(predictor.addSample(5f, 0f, 5 * MS)));
+        // the finger was at (10, 0) at 10 ms, the prediction said (0, 0)
+        assertEquals(10f, predictor.addSample(15f, 0f, 15 * MS), 1e-3f);
+        // only measured once
+        assertTrue(Float.isNaN(predictor.addSample(20f, 0f, 20 * MS)));
+    }
+
+    @Test
+    public void forgetsTheGestureOnReset() throws Exception {
+        final TouchPredictor predictor = new TouchPredictor();
+        for (int i = 0; i <= 20; i++) {
+            predictor.addSample(i * 8f, 0f, i * 8 * MS);
+        }
+        predictor.predict(16 * MS);
+        assertTrue(predictor.hasPrediction());
+        predictor.reset();
+        assertFalse(predictor.hasPrediction());
+        assertTrue(Float.isNaN(predictor.addSample(300f, 300f, 1000 * MS)));
+        predictor.predict(16 * MS);
+        assertEquals(300f, predictor.getPredictedX(), 0f);
+        assertEquals(300f, predictor.getPredictedY(), 0f);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void needsASampleToPredict() throws Exception {
+        new TouchPredictor().predict(16 * MS);
+    }
+}
@@ -0,0 +1,123 @@
+package com.amnix.materiallockview;
+
+import android.os.Debug;
+import android.os.SystemClock;
+import android.test.InstrumentationTestCase;
+import android.view.MotionEvent;
+import android.view.View;
+
+/**
+ * Checks that drawing a pattern doesn't allocate once every cell has been hit before.
+ */
+public class MaterialLockViewAllocationTest extends InstrumentationTestCase {
+
+    private static final int SIZE = 900;
+
+    private MaterialLockView mLockView;
+    private MotionEvent[] mGesture;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        getInstrumentation().runOnMainSync(new Runnable() {
+
+            @Override
+            public void run() {
+                mLockView = new MaterialLockView(getInstrumentation().getTargetContext());
+                mLockView.setTactileFeedbackEnabled(false);
+                mLockView.measure(View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY),
+                        View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY));
+                mLockView.layout(0, 0, SIZE, SIZE);
+            }
+
+        });
+        mGesture = createGesture();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        for (MotionEvent event : mGesture) {
+            event.recycle();
+        }
+        super.tearDown();
+    }
+
+    /**
+     * A "Z" through every cell of the 3x3 grid, one cell per move event.
+     */
+    private static MotionEvent[] createGesture() {
+        final float square = SIZE / 3f;
+        final int[] cells = {0, 1, 2, 4, 6, 7, 8};
+        final long downTime = SystemClock.uptimeMillis();
+        final MotionEvent[] gesture = new MotionEvent[cells.length + 1];
+        for (int i = 0; i < cells.length; i++) {
+            final float x = (cells[i] % 3 + 0.5f) * square;
+            final float y = (cells[i] / 3 + 0.5f) * square;
+            gesture[i] = MotionEvent.obtain(downTime, downTime + i * 16,
+                    i == 0 ? MotionEvent.ACTION_DOWN : MotionEvent.ACTION_MOVE, x, y, 0);
+        }
+        final MotionEvent last = gesture[cells.length - 1];
+        gesture[cells.length] = MotionEvent.obtain(downTime, downTime + cells.length * 16,
+                MotionEvent.ACTION_UP, last.getX(), last.getY(), 0);
+        return gesture;
+    }
+
+    private void drawPattern() {
+        for (MotionEvent event : mGesture) {
+            mLockView.onTouchEvent(event);
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    public void testNoAllocationAfterFirstPattern() throws Exception {
+        final int[] allocations = new int[1];
+        getInstrumentation().runOnMainSync(new Runnable() {
+
+            @Override
+            public void run() {
+                // warm up: creates the animators of the pattern cells
+                drawPattern();
+
+                Debug.resetThreadAllocCount();
+                Debug.startAllocCounting();
+                drawPattern();
+                Debug.stopAllocCounting();
+                allocations[0] = Debug.getThreadAllocCount();
+            }
+
+        });
+        assertEquals(7, mLockView.getPattern().size());
+        assertEquals(0, allocations[0]);
+    }
+
+    @SuppressWarnings("deprecation")
+    public void testNoAllocationWithMetrics() throws Exception {
+        final int[] allocations = new int[1];
+        final long[] samples = new long[1];
+        getInstrumentation().runOnMainSync(new Runnable() {
+
+            @Override
+            public void run() {
+                mLockView.setOnMetricsListener(new MaterialLockView.OnMetricsListener() {
+
+                    @Override
+                    public void onMetrics(LockViewMetrics metrics) {
+                        samples[0] += metrics.getSamplesPerEvent().getCount();
+                    }
+
+                });
+                drawPattern();
+
+                Debug.resetThreadAllocCount();
+                Debug.startAllocCounting();
+                drawPattern();
+                Debug.stopAllocCounting();
+                allocations[0] = Debug.getThreadAllocCount();
+            }
+
+        });
+        // one per move event, in both patterns
+        assertEquals(2 * (mGesture.length - 2), samples[0]);
+        assertEquals(0, allocations[0]);
+    }
+}
@@ -0,0 +1,158 @@
+package com.amnix.materiallockview;
+
+import android.content.Context;
+import android.graphics.Rect;
+import android.os.SystemClock;
+import android.test.InstrumentationTestCase;
+import android.view.MotionEvent;
+import android.view.View;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks that the dot and line animations only invalidate the cells and segments they change.
+ */
+public class MaterialLockViewInvalidationTest extends InstrumentationTestCase {
+
+    private static final int SIZE = 900;
+    private static final float SQUARE = SIZE / 3f;
+
+    /**
+     * The width of the pattern's line, in dp.
+     */
+    private static final float PATH_WIDTH_DP = 3;
+
+    private RecordingLockView mLockView;
+    private final Histogram mInvalidatedArea = new Histogram();
+
+    /**
+     * Records the rectangles it is invalidated with.
+     */
+    private static class RecordingLockView extends MaterialLockView {
+
+        final List<Rect> mInvalidatedRects = new ArrayList<>();
+
+        RecordingLockView(Context context) {
+            super(context);
+        }
+
+        @Override
+        public void invalidate(int left, int top, int right, int bottom) {
+            mInvalidatedRects.add(new Rect(left, top, right, bottom));
+            super.invalidate(left, top, right, bottom);
+        }
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        getInstrumentation().runOnMainSync(new Runnable() {
+
+            @Override
+            public void run() {
+                mLockView = new RecordingLockView(getInstrumentation().getTargetContext());
+                mLockView.setTactileFeedbackEnabled(false);
+                mLockView.measure(View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY),
+                        View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY));
+                mLockView.layout(0, 0, SIZE, SIZE);
+                mLockView.setOnMetricsListener(new MaterialLockView.OnMetricsListener() {
+
+                    @Override
+                    public void onMetrics(LockViewMetrics metrics) {
+                        mInvalidatedArea.set(metrics.getInvalidatedArea());
+                    }
+
+                });
+            }
+
+        });
+    }
+
+    private void sendTouch(int action, float x, float y) {
+        sendTouch(action, x, y, false);
+    }
+
+    /**
+     * @param forgetRects Whether to forget the rectangles invalidated so far once the event is handled, before any
+     *                    animation frame runs.
+     */
+    private void sendTouch(final int action, final float x, final float y, final boolean forgetRects) {
+        getInstrumentation().runOnMainSync(new Runnable() {
+
+            @Override
+            public void run() {
+                final long now = SystemClock.uptimeMillis();
+                final MotionEvent event = MotionEvent.obtain(now, now, action, x, y, 0);
+                mLockView.onTouchEvent(event);
+                event.recycle();
+                if (forgetRects) {
+                    mLockView.mInvalidatedRects.clear();
+                }
+            }
+
+        });
+    }
+
+    /**
+     * Waits for the dot and line animations of every cell to finish.
+     */
+    private void waitForAnimations() {
+        final boolean[] running = {true};
+        final long timeout = SystemClock.uptimeMillis() + 5000;
+        while (running[0] && SystemClock.uptimeMillis() < timeout) {
+            getInstrumentation().waitForIdleSync();
+            getInstrumentation().runOnMainSync(new Runnable() {
+
+                @Override
+                public void run() {
+                    running[0] = false;
+                    for (MaterialLockView.CellState state : mLockView.getCellStateArray()) {
+                        running[0] |= state.sizeAnimator != null && state.sizeAnimator.isRunning()
+                                || state.lineAnimator != null && state.lineAnimator.isRunning();
+                    }
+                }
+
+            });
+        }
+        assertFalse("animations still running", running[0]);
+    }
+
+    public void testDotAnimationInvalidatesItsCellOnly() throws Exception {
+        sendTouch(MotionEvent.ACTION_DOWN, SQUARE / 2, SQUARE / 2);
+        sendTouch(MotionEvent.ACTION_MOVE, SQUARE * 1.5f, SQUARE / 2);
+        // let the dots grow and shrink back
+        waitForAnimations();
+        sendTouch(MotionEvent.ACTION_CANCEL, SQUARE * 1.5f, SQUARE / 2);
+
+        // animation frames, plus the partial invalidations of the touch events
+        assertTrue(mInvalidatedArea.getCount() > 4);
+        assertTrue(mInvalidatedArea.getPercentile(75) < (long) (SQUARE * SQUARE * 2));
+        // the down resets the pattern and the cancel clears it, both invalidate the whole view; nothing else comes
+        // near its area, so it has a bucket of its own
+        final long viewArea = (long) SIZE * SIZE;
+        assertEquals(2, mInvalidatedArea.getBucketValueCount(Histogram.getBucketIndex(viewArea)));
+        assertEquals(viewArea, mInvalidatedArea.getMax());
+    }
+
+    public void testLineEndAnimationInvalidatesItsSegmentOnly() throws Exception {
+        sendTouch(MotionEvent.ACTION_DOWN, SQUARE / 2, SQUARE / 2);
+        // the second cell starts the line end animation, from the first cell's center to its own
+        sendTouch(MotionEvent.ACTION_MOVE, SQUARE * 1.5f, SQUARE / 2, true);
+        waitForAnimations();
+
+        // the line end rectangles are the ones wider than a dot, which is much smaller than a cell
+        final float margin = PATH_WIDTH_DP * getInstrumentation().getTargetContext()
+                .getResources().getDisplayMetrics().density / 2 + 3;
+        final Rect segment = new Rect((int) (SQUARE / 2 - margin), (int) (SQUARE / 2 - margin),
+                (int) (SQUARE * 1.5f + margin) + 1, (int) (SQUARE / 2 + margin) + 1);
+        int lineEndFrames = 0;
+        for (Rect rect : mLockView.mInvalidatedRects) {
+            if (rect.width() > SQUARE / 2) {
+                assertTrue(rect + " outside of the segment " + segment, segment.contains(rect));
+                lineEndFrames++;
+            }
+        }
+        assertTrue(lineEndFrames > 0);
+    }
+}
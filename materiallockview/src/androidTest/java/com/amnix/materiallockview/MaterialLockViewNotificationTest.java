@@ -0,0 +1,179 @@
+package com.amnix.materiallockview;
+
+import android.os.SystemClock;
+import android.test.InstrumentationTestCase;
+import android.view.MotionEvent;
+import android.view.View;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks how the pattern listener is called: cells added one by one or coalesced per touch event, and synchronously
+ * or through an executor.
+ */
+public class MaterialLockViewNotificationTest extends InstrumentationTestCase {
+
+    private static final int SIZE = 900;
+    private static final long LISTENER_MILLIS = 500;
+
+    private MaterialLockView mLockView;
+    private final StringBuilder mCalls = new StringBuilder();
+
+    /**
+     * Runs the {@link MaterialLockView.DispatchPolicy#Background} listeners.
+     */
+    private final ExecutorService mListenerExecutor = Executors.newSingleThreadExecutor();
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        getInstrumentation().runOnMainSync(new Runnable() {
+
+            @Override
+            public void run() {
+                mLockView = new MaterialLockView(getInstrumentation().getTargetContext());
+                mLockView.setTactileFeedbackEnabled(false);
+                mLockView.measure(View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY),
+                        View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY));
+                mLockView.layout(0, 0, SIZE, SIZE);
+                mLockView.setOnCompactPatternListener(new MaterialLockView.OnCompactPatternListener() {
+
+                    @Override
+                    public void onPatternStart() {
+                        mCalls.append("start ");
+                    }
+
+                    @Override
+                    public void onPatternCellAdded(CompactPattern pattern) {
+                        mCalls.append("added:").append(pattern.size()).append(' ');
+                    }
+
+                    @Override
+                    public void onPatternCellsAdded(CompactPattern pattern, int addedCount) {
+                        mCalls.append("added+").append(addedCount).append(':').append(pattern.size()).append(' ');
+                    }
+
+                    @Override
+                    public void onPatternDetected(CompactPattern pattern) {
+                        mCalls.append("detected:").append(pattern.size());
+                    }
+
+                });
+            }
+
+        });
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mListenerExecutor.shutdownNow();
+        super.tearDown();
+    }
+
+    /**
+     * Touches the top left cell, then moves to the bottom right one in one event, crossing the center one.
+     *
+     * @return The time spent handling the touch events, in milliseconds.
+     */
+    private long drawDiagonal() {
+        final long[] handlingTime = new long[1];
+        getInstrumentation().runOnMainSync(new Runnable() {
+
+            @Override
+            public void run() {
+                final float square = SIZE / 3f;
+                final long downTime = SystemClock.uptimeMillis();
+                final MotionEvent[] gesture = {
+                        MotionEvent.obtain(downTime, downTime, MotionEvent.ACTION_DOWN,
+                                square / 2, square / 2, 0),
+                        MotionEvent.obtain(downTime, downTime + 16, MotionEvent.ACTION_MOVE,
+                                SIZE - square / 2, SIZE - square / 2, 0),
+                        MotionEvent.obtain(downTime, downTime + 32, MotionEvent.ACTION_UP,
+                                SIZE - square / 2, SIZE - square / 2, 0)
+                };
+                final long start = System.nanoTime();
+                for (MotionEvent event : gesture) {
+                    mLockView.onTouchEvent(event);
+                }
+                handlingTime[0] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                for (MotionEvent event : gesture) {
+                    event.recycle();
+                }
+            }
+
+        });
+        return handlingTime[0];
+    }
+
+    /**
+     * Sets a listener taking {@link #LISTENER_MILLIS} to handle a detected pattern.
+     *
+     * @param policy   How to call the listener.
+     * @param detected Receives the size of the detected pattern.
+     * @param handled  Counted down once the pattern is handled.
+     */
+    private void setSlowListener(final MaterialLockView.DispatchPolicy policy, final int[] detected,
+                                 final CountDownLatch handled) {
+        getInstrumentation().runOnMainSync(new Runnable() {
+
+            @Override
+            public void run() {
+                mLockView.setOnCompactPatternListener(new MaterialLockView.OnCompactPatternListener() {
+
+                    @Override
+                    public void onPatternDetected(CompactPattern pattern) {
+                        SystemClock.sleep(LISTENER_MILLIS);
+                        detected[0] = pattern.size();
+                        handled.countDown();
+                    }
+
+                }, policy, policy == MaterialLockView.DispatchPolicy.Background
+                        ? mListenerExecutor : null);
+            }
+
+        });
+    }
+
+    public void testReportsEveryCell() throws Exception {
+        drawDiagonal();
+        assertEquals("added:1 start added:2 added:3 detected:3", mCalls.toString());
+    }
+
+    public void testCoalescesCellsPerEvent() throws Exception {
+        mLockView.setCoalesceCellsAdded(true);
+        drawDiagonal();
+        assertEquals("start added+1:1 added+2:3 detected:3", mCalls.toString());
+    }
+
+    public void testSynchronousListenerDelaysInput() throws Exception {
+        final int[] detected = new int[1];
+        final CountDownLatch handled = new CountDownLatch(1);
+        setSlowListener(MaterialLockView.DispatchPolicy.Synchronous, detected, handled);
+
+        assertTrue(drawDiagonal() >= LISTENER_MILLIS);
+        assertEquals(0, handled.getCount());
+        assertEquals(3, detected[0]);
+    }
+
+    public void testBackgroundListenerDoesNotDelayInput() throws Exception {
+        final int[] detected = new int[1];
+        final CountDownLatch handled = new CountDownLatch(1);
+        setSlowListener(MaterialLockView.DispatchPolicy.Background, detected, handled);
+
+        assertTrue(drawDiagonal() < LISTENER_MILLIS / 2);
+        // the view moves on while the listener runs, the listener keeps its snapshot
+        getInstrumentation().runOnMainSync(new Runnable() {
+
+            @Override
+            public void run() {
+                mLockView.clearPattern();
+            }
+
+        });
+        assertTrue(handled.await(5 * LISTENER_MILLIS, TimeUnit.MILLISECONDS));
+        assertEquals(3, detected[0]);
+    }
+}
@@ -0,0 +1,188 @@
+package com.amnix.materiallockview;
+
+import android.os.SystemClock;
+import android.test.InstrumentationTestCase;
+import android.view.MotionEvent;
+import android.view.View;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Checks patterns and display modes posted from other threads.
+ */
+public class MaterialLockViewPostPatternTest extends InstrumentationTestCase {
+
+    private static final int SIZE = 900;
+
+    private static final List<MaterialLockView.Cell> FIRST = Arrays.asList(
+            MaterialLockView.Cell.of(0, 0), MaterialLockView.Cell.of(0, 1));
+    private static final List<MaterialLockView.Cell> LAST = Arrays.asList(
+            MaterialLockView.Cell.of(2, 2), MaterialLockView.Cell.of(1, 1), MaterialLockView.Cell.of(0, 0));
+
+    private MaterialLockView mLockView;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        getInstrumentation().runOnMainSync(new Runnable() {
+
+            @Override
+            public void run() {
+                mLockView = new MaterialLockView(getInstrumentation().getTargetContext());
+                mLockView.setTactileFeedbackEnabled(false);
+                mLockView.measure(View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY),
+                        View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY));
+                mLockView.layout(0, 0, SIZE, SIZE);
+            }
+
+        });
+    }
+
+    private void postFromWorker(final Runnable post) throws InterruptedException {
+        final Thread worker = new Thread(post);
+        worker.start();
+        worker.join();
+    }
+
+    /**
+     * Waits for the main thread to apply the posts by itself.
+     *
+     * @return Whether the view shows the pattern before the timeout.
+     */
+    private boolean waitForPattern(final List<MaterialLockView.Cell> pattern) {
+        final boolean[] shown = new boolean[1];
+        final long timeout = SystemClock.uptimeMillis() + 5000;
+        while (!shown[0] && SystemClock.uptimeMillis() < timeout) {
+            getInstrumentation().waitForIdleSync();
+            getInstrumentation().runOnMainSync(new Runnable() {
+
+                @Override
+                public void run() {
+                    shown[0] = pattern.equals(mLockView.getPattern());
+                }
+
+            });
+        }
+        return shown[0];
+    }
+
+    /**
+     * Applies the posts right away, if the scheduled task didn't yet.
+     */
+    private void applyPosts() {
+        getInstrumentation().runOnMainSync(new Runnable() {
+
+            @Override
+            public void run() {
+                mLockView.applyPostedPattern();
+            }
+
+        });
+    }
+
+    public void testAppliesOnlyTheLastPost() throws Exception {
+        postFromWorker(new Runnable() {
+
+            @Override
+            public void run() {
+                mLockView.postPattern(MaterialLockView.DisplayMode.Correct, FIRST);
+                mLockView.postPattern(MaterialLockView.DisplayMode.Correct, LAST);
+                mLockView.postDisplayMode(MaterialLockView.DisplayMode.Wrong);
+            }
+
+        });
+        assertTrue(waitForPattern(LAST));
+        assertEquals(MaterialLockView.DisplayMode.Wrong, mLockView.getDisplayMode());
+    }
+
+    public void testAppliesPostsOnItsOwnWhileDetached() throws Exception {
+        // the view of this test is never attached to a window
+        postFromWorker(new Runnable() {
+
+            @Override
+            public void run() {
+                mLockView.postPattern(MaterialLockView.DisplayMode.Correct, FIRST);
+            }
+
+        });
+        assertTrue(waitForPattern(FIRST));
+
+        // and it keeps taking posts
+        postFromWorker(new Runnable() {
+
+            @Override
+            public void run() {
+                mLockView.postPattern(MaterialLockView.DisplayMode.Wrong, LAST);
+            }
+
+        });
+        assertTrue(waitForPattern(LAST));
+        assertEquals(MaterialLockView.DisplayMode.Wrong, mLockView.getDisplayMode());
+    }
+
+    public void testPostsDisplayModeAlone() throws Exception {
+        getInstrumentation().runOnMainSync(new Runnable() {
+
+            @Override
+            public void run() {
+                mLockView.setPattern(MaterialLockView.DisplayMode.Correct, FIRST);
+            }
+
+        });
+        postFromWorker(new Runnable() {
+
+            @Override
+            public void run() {
+                mLockView.postDisplayMode(MaterialLockView.DisplayMode.Wrong);
+            }
+
+        });
+        applyPosts();
+        assertEquals(FIRST, mLockView.getPattern());
+        assertEquals(MaterialLockView.DisplayMode.Wrong, mLockView.getDisplayMode());
+    }
+
+    public void testTouchDropsThePostedPattern() throws Exception {
+        getInstrumentation().runOnMainSync(new Runnable() {
+
+            @Override
+            public void run() {
+                // the main thread is busy until after the touch, so the scheduled apply can't run before it
+                try {
+                    postFromWorker(new Runnable() {
+
+                        @Override
+                        public void run() {
+                            mLockView.postPattern(MaterialLockView.DisplayMode.Correct, LAST);
+                            mLockView.postDisplayMode(MaterialLockView.DisplayMode.Wrong);
+                        }
+
+                    });
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+                final long now = SystemClock.uptimeMillis();
+                final MotionEvent down = MotionEvent.obtain(now, now, MotionEvent.ACTION_DOWN,
+                        SIZE / 6f, SIZE / 6f, 0);
+                mLockView.onTouchEvent(down);
+                down.recycle();
+            }
+
+        });
+        // let the scheduled apply run: it finds nothing to apply, or it would show the posted pattern as wrong
+        getInstrumentation().waitForIdleSync();
+        final Object[] shown = new Object[2];
+        getInstrumentation().runOnMainSync(new Runnable() {
+
+            @Override
+            public void run() {
+                shown[0] = mLockView.getPattern();
+                shown[1] = mLockView.getDisplayMode();
+            }
+
+        });
+        assertEquals(Arrays.asList(MaterialLockView.Cell.of(0, 0)), shown[0]);
+        assertEquals(MaterialLockView.DisplayMode.Correct, shown[1]);
+    }
+}
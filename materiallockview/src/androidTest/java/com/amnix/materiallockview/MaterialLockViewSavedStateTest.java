@@ -0,0 +1,153 @@
+package com.amnix.materiallockview;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.test.InstrumentationTestCase;
+import android.util.Log;
+import android.view.View;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Round-trips the state of the view through a {@link Parcel}, and checks its size and cost.
+ */
+public class MaterialLockViewSavedStateTest extends InstrumentationTestCase {
+
+    private static final String TAG = "SavedStateTest";
+    private static final int ROUND_TRIPS = 1000;
+
+    private MaterialLockView createView() {
+        return new MaterialLockView(getInstrumentation().getTargetContext());
+    }
+
+    private static List<MaterialLockView.Cell> createPattern(int lockSize, int size) {
+        final List<MaterialLockView.Cell> pattern = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            pattern.add(MaterialLockView.Cell.ofId(i, lockSize));
+        }
+        return pattern;
+    }
+
+    private static Parcelable roundTrip(Parcelable state) throws Exception {
+        final Parcelable.Creator<?> creator =
+                (Parcelable.Creator<?>) state.getClass().getField("CREATOR").get(null);
+        final Parcel parcel = Parcel.obtain();
+        try {
+            state.writeToParcel(parcel, 0);
+            parcel.setDataPosition(0);
+            return (Parcelable) creator.createFromParcel(parcel);
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    /**
+     * @return The number of bytes the view adds to the state of its super class.
+     */
+    private static int payloadSize(Parcelable state) {
+        final Parcel parcel = Parcel.obtain();
+        final Parcel superParcel = Parcel.obtain();
+        try {
+            state.writeToParcel(parcel, 0);
+            superParcel.writeParcelable(((View.BaseSavedState) state).getSuperState(), 0);
+            return parcel.dataSize() - superParcel.dataSize();
+        } finally {
+            parcel.recycle();
+            superParcel.recycle();
+        }
+    }
+
+    private void assertRoundTrip(final int lockSize, final int patternSize,
+                                 final MaterialLockView.DisplayMode displayMode) throws Exception {
+        final MaterialLockView[] views = new MaterialLockView[2];
+        final Exception[] error = new Exception[1];
+        getInstrumentation().runOnMainSync(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    final MaterialLockView view = createView();
+                    view.setLockSize(lockSize);
+                    view.setPattern(displayMode, createPattern(lockSize, patternSize));
+                    view.setInStealthMode(true);
+                    view.setTactileFeedbackEnabled(false);
+                    view.disableInput();
+
+                    final MaterialLockView restored = createView();
+                    restored.onRestoreInstanceState(roundTrip(view.onSaveInstanceState()));
+                    views[0] = view;
+                    views[1] = restored;
+                } catch (Exception e) {
+                    error[0] = e;
+                }
+            }
+
+        });
+        if (error[0] != null) {
+            throw error[0];
+        }
+        assertEquals(lockSize, views[1].getLockSize());
+        assertEquals(views[0].getPattern(), views[1].getPattern());
+        assertEquals(displayMode, views[1].getDisplayMode());
+        assertTrue(views[1].isInStealthMode());
+        assertFalse(views[1].isTactileFeedbackEnabled());
+        assertFalse(views[1].isInputEnabled());
+    }
+
+    public void testRoundTripDefaultGrid() throws Exception {
+        assertRoundTrip(MaterialLockView.LOCK_SIZE, 9, MaterialLockView.DisplayMode.Wrong);
+    }
+
+    public void testRoundTripLargeGrid() throws Exception {
+        // 81 cells of 7 bits don't fit in a long: stored as bytes
+        assertRoundTrip(MaterialLockView.MAX_LOCK_SIZE, MaterialLockView.MAX_MATRIX_SIZE,
+                MaterialLockView.DisplayMode.Correct);
+    }
+
+    public void testRoundTripEmptyPattern() throws Exception {
+        assertRoundTrip(5, 0, MaterialLockView.DisplayMode.Correct);
+    }
+
+    public void testPayloadSizeAndTime() throws Exception {
+        final int[] sizes = new int[2];
+        final long[] nanos = new long[1];
+        final Exception[] error = new Exception[1];
+        getInstrumentation().runOnMainSync(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    final MaterialLockView view = createView();
+                    view.setPattern(MaterialLockView.DisplayMode.Correct,
+                            createPattern(MaterialLockView.LOCK_SIZE, 9));
+                    sizes[0] = payloadSize(view.onSaveInstanceState());
+
+                    view.setLockSize(MaterialLockView.MAX_LOCK_SIZE);
+                    view.setPattern(MaterialLockView.DisplayMode.Correct,
+                            createPattern(MaterialLockView.MAX_LOCK_SIZE, MaterialLockView.MAX_MATRIX_SIZE));
+                    sizes[1] = payloadSize(view.onSaveInstanceState());
+
+                    final MaterialLockView restored = createView();
+                    final long start = System.nanoTime();
+                    for (int i = 0; i < ROUND_TRIPS; i++) {
+                        restored.onRestoreInstanceState(roundTrip(view.onSaveInstanceState()));
+                    }
+                    nanos[0] = (System.nanoTime() - start) / ROUND_TRIPS;
+                } catch (Exception e) {
+                    error[0] = e;
+                }
+            }
+
+        });
+        if (error[0] != null) {
+            throw error[0];
+        }
+        Log.i(TAG, "3x3 payload: " + sizes[0] + " bytes, 9x9 payload: " + sizes[1]
+                + " bytes, round trip: " + nanos[0] + " ns");
+        // flags + packed long
+        assertEquals(4 + 8, sizes[0]);
+        // flags + array length + 81 ids padded to 4 bytes
+        assertEquals(4 + 4 + 84, sizes[1]);
+    }
+}
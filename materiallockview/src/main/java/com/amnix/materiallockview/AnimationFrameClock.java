@@ -0,0 +1,159 @@
+package com.amnix.materiallockview;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One clock shared by all animations of the library. It ticks at most once per display frame (on the vsync signal of
+ * {@link Choreographer} from API 16, on a frame-length delay below), and only while someone listens. Frame times are
+ * monotonic, in the {@link System#nanoTime()} time base.
+ * <p/>
+ * The clock lives on the main thread and must only be used from it.
+ */
+public final class AnimationFrameClock {
+
+    /**
+     * Receives the frame ticks.
+     */
+    public interface FrameListener {
+
+        /**
+         * Will be called once per frame while the listener is registered.
+         *
+         * @param frameTimeNanos the time of the frame, in the {@link System#nanoTime()} time base.
+         */
+        void onFrame(long frameTimeNanos);
+
+    }// FrameListener
+
+    /**
+     * Delay between two frames when there is no {@link Choreographer}, in milliseconds.
+     */
+    private static final long FALLBACK_FRAME_DELAY = 16;
+
+    private static AnimationFrameClock sInstance;
+
+    /**
+     * Gets the clock of the main thread.
+     *
+     * @return the clock.
+     */
+    public static AnimationFrameClock getInstance() {
+        if (sInstance == null) {
+            sInstance = new AnimationFrameClock();
+        }
+        return sInstance;
+    }// getInstance()
+
+    private final List<FrameListener> mListeners = new ArrayList<>();
+    private FrameListener[] mDispatching = new FrameListener[8];
+    private final Runnable mFallbackFrame;
+    private final Handler mHandler;
+    private final Object mChoreographerCallback;
+    private boolean mFrameScheduled = false;
+
+    private AnimationFrameClock() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            mChoreographerCallback = new ChoreographerCallback(this);
+            mHandler = null;
+            mFallbackFrame = null;
+        } else {
+            mChoreographerCallback = null;
+            mHandler = new Handler(Looper.getMainLooper());
+            mFallbackFrame = new Runnable() {
+
+                @Override
+                public void run() {
+                    doFrame(System.nanoTime());
+                }// run()
+
+            };
+        }
+    }// AnimationFrameClock()
+
+    /**
+     * Starts sending frame ticks to a listener, from the next frame on.
+     *
+     * @param listener the listener.
+     */
+    public void addFrameListener(@NonNull FrameListener listener) {
+        if (!mListeners.contains(listener)) {
+            mListeners.add(listener);
+        }
+        scheduleFrame();
+    }// addFrameListener()
+
+    /**
+     * Stops sending frame ticks to a listener. The clock stops once nobody listens.
+     *
+     * @param listener the listener.
+     */
+    public void removeFrameListener(@NonNull FrameListener listener) {
+        mListeners.remove(listener);
+    }// removeFrameListener()
+
+    /**
+     * @return the current time, in the time base of the frame times.
+     */
+    public static long now() {
+        return System.nanoTime();
+    }// now()
+
+    private void scheduleFrame() {
+        if (mFrameScheduled) return;
+
+        mFrameScheduled = true;
+        if (mChoreographerCallback != null) {
+            ((ChoreographerCallback) mChoreographerCallback).post();
+        } else {
+            mHandler.postDelayed(mFallbackFrame, FALLBACK_FRAME_DELAY);
+        }
+    }// scheduleFrame()
+
+    private void doFrame(long frameTimeNanos) {
+        mFrameScheduled = false;
+
+        // listeners may add or remove themselves while being called
+        final int count = mListeners.size();
+        if (mDispatching.length < count) {
+            mDispatching = new FrameListener[count * 2];
+        }
+        final FrameListener[] dispatching = mListeners.toArray(mDispatching);
+        for (int i = 0; i < count; i++) {
+            dispatching[i].onFrame(frameTimeNanos);
+            dispatching[i] = null;
+        }
+
+        if (!mListeners.isEmpty()) {
+            scheduleFrame();
+        }
+    }// doFrame()
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private static class ChoreographerCallback implements Choreographer.FrameCallback {
+
+        private final AnimationFrameClock mClock;
+
+        ChoreographerCallback(AnimationFrameClock clock) {
+            mClock = clock;
+        }
+
+        void post() {
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mClock.doFrame(frameTimeNanos);
+        }
+
+    }// ChoreographerCallback
+
+}
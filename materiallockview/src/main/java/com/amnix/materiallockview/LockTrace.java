@@ -0,0 +1,65 @@
+package com.amnix.materiallockview;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Trace;
+
+/**
+ * Named sections of the lock view in system traces (systrace, Perfetto), switched on at runtime by
+ * {@link MaterialLockView#setTracingEnabled(boolean)}. While off, a section costs one static field read.
+ * <p/>
+ * A section is opened by {@link #begin(String)} and closed by {@link #end(boolean)} with what {@code begin()}
+ * returned, so that switching tracing on or off in between never leaves a section unbalanced.
+ */
+final class LockTrace {
+
+    static final String TOUCH_EVENT = "MaterialLockView.onTouchEvent";
+    static final String MOVE = "MaterialLockView.handleActionMove";
+    static final String HIT_DETECTION = "MaterialLockView.detectAndAddHit";
+    static final String DRAW = "MaterialLockView.onDraw";
+    static final String DRAW_CIRCLES = "MaterialLockView.drawCircles";
+    static final String DRAW_PATH = "MaterialLockView.drawPath";
+    static final String NOTIFY_PATTERN_START = "MaterialLockView.notifyPatternStarted";
+    static final String NOTIFY_CELL_ADDED = "MaterialLockView.notifyCellAdded";
+    static final String NOTIFY_PATTERN_DETECTED = "MaterialLockView.notifyPatternDetected";
+    static final String NOTIFY_PATTERN_CLEARED = "MaterialLockView.notifyPatternCleared";
+
+    private static volatile boolean sEnabled = false;
+
+    private LockTrace() {
+    }
+
+    static boolean isEnabled() {
+        return sEnabled;
+    }
+
+    /**
+     * @param enabled Whether to trace. Ignored below API 18, which has no {@link Trace}.
+     */
+    static void setEnabled(boolean enabled) {
+        sEnabled = enabled && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2;
+    }
+
+    /**
+     * @param name The name of the section.
+     * @return Whether the section was opened, to be given to {@link #end(boolean)}.
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    static boolean begin(String name) {
+        if (!sEnabled) {
+            return false;
+        }
+        Trace.beginSection(name);
+        return true;
+    }
+
+    /**
+     * @param begun What {@link #begin(String)} returned.
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    static void end(boolean begun) {
+        if (begun) {
+            Trace.endSection();
+        }
+    }
+}
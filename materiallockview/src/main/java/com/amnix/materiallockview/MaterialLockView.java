@@ -6,17 +6,16 @@ import android.animation.ValueAnimator;
 import android.annotation.TargetApi;
 import android.content.Context;
 import android.content.res.TypedArray;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Path;
 import android.graphics.Rect;
+import android.graphics.Region;
 import android.os.Build;
-import android.os.Debug;
-import android.os.Handler;
 import android.os.Parcel;
 import android.os.Parcelable;
-import android.os.SystemClock;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.util.AttributeSet;
@@ -27,49 +26,78 @@ import android.view.accessibility.AccessibilityEvent;
 import android.view.accessibility.AccessibilityManager;
 import android.view.animation.AnimationUtils;
 import android.view.animation.Interpolator;
+import android.view.animation.LinearInterpolator;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class MaterialLockView extends View {
     public static class Cell implements Parcelable {
         public final int row, column;
-        static Cell[][] sCells = new Cell[LOCK_SIZE][LOCK_SIZE];
+
+        /**
+         * The cell of the core model this one stands for.
+         */
+        private final GridCell mGridCell;
+
+        /**
+         * One cell per {@link GridCell}, indexed by {@link GridCell#getIndex()}. Built once when the class is
+         * initialized and never changed, so it is read without locking.
+         */
+        static final Cell[] sCells = new Cell[MAX_MATRIX_SIZE];
 
         static {
-            for (int i = 0; i < LOCK_SIZE; i++) {
-                for (int j = 0; j < LOCK_SIZE; j++) {
-                    sCells[i][j] = new Cell(i, j);
-                }
+            for (int i = 0; i < MAX_MATRIX_SIZE; i++) {
+                sCells[i] = new Cell(GridCell.ofIndex(i));
             }
         }
 
         /**
-         * @param row    number or row
-         * @param column number of column
+         * @param gridCell the cell of the core model
          */
-        private Cell(int row, int column) {
-            checkRange(row, column);
-            this.row = row;
-            this.column = column;
+        private Cell(GridCell gridCell) {
+            this.row = gridCell.row;
+            this.column = gridCell.column;
+            mGridCell = gridCell;
         }
 
         /**
          * Gets the ID.It is counted from left to right, top to bottom of the matrix, starting by zero.
          *
-         * @return the ID.
+         * @return the ID in the default {@link #LOCK_SIZE} grid.
          */
         public int getId() {
-            return row * LOCK_SIZE + column;
+            return getId(LOCK_SIZE);
         }// getId()
 
+        /**
+         * Gets the ID in a grid of the given size.
+         *
+         * @param lockSize the number of rows (and columns) of the grid.
+         * @return the ID.
+         */
+        public int getId(int lockSize) {
+            return mGridCell.getId(lockSize);
+        }// getId()
+
+        /**
+         * @return the cell of the core model.
+         */
+        public GridCell getGridCell() {
+            return mGridCell;
+        }
+
         /**
          * @param row    The row of the cell.
          * @param column The column of the cell.
          */
-        public static synchronized Cell of(int row, int column) {
-            checkRange(row, column);
-            return sCells[row][column];
+        public static Cell of(int row, int column) {
+            return sCells[GridCell.of(row, column).getIndex()];
         }
 
         /**
@@ -80,19 +108,19 @@ public class MaterialLockView extends View {
          * @author Hai Bison
          * @since v2.7 beta
          */
-        public static synchronized Cell of(int id) {
-            return of(id / LOCK_SIZE, id % LOCK_SIZE);
+        public static Cell of(int id) {
+            return ofId(id, LOCK_SIZE);
         }
 
-        private static void checkRange(int row, int column) {
-            if (row < 0 || row > LOCK_SIZE - 1) {
-                throw new IllegalArgumentException("row must be in range 0-"
-                        + (LOCK_SIZE - 1));
-            }
-            if (column < 0 || column > LOCK_SIZE - 1) {
-                throw new IllegalArgumentException("column must be in range 0-"
-                        + (LOCK_SIZE - 1));
-            }
+        /**
+         * Gets a cell from its ID in a grid of the given size.
+         *
+         * @param id       the cell ID.
+         * @param lockSize the number of rows (and columns) of the grid.
+         * @return the cell.
+         */
+        public static Cell ofId(int id, int lockSize) {
+            return sCells[GridCell.ofId(id, lockSize).getIndex()];
         }
 
         /**
@@ -125,7 +153,9 @@ public class MaterialLockView extends View {
         public static final Creator<Cell> CREATOR = new Creator<Cell>() {
 
             public Cell createFromParcel(Parcel in) {
-                return new Cell(in);
+                final int column = in.readInt();
+                final int row = in.readInt();
+                return of(row, column);
             }
 
             public Cell[] newArray(int size) {
@@ -133,11 +163,6 @@ public class MaterialLockView extends View {
             }
         };
 
-        private Cell(Parcel in) {
-            column = in.readInt();
-            row = in.readInt();
-        }
-
     }
 
     /**
@@ -161,6 +186,30 @@ public class MaterialLockView extends View {
         Wrong
     }
 
+    /**
+     * How the pattern listener is called, see {@link #setOnCompactPatternListener(OnCompactPatternListener,
+     * DispatchPolicy, Executor)}.
+     */
+    public enum DispatchPolicy {
+
+        /**
+         * Call the listener right away, while the touch event is being handled.
+         */
+        Synchronous,
+
+        /**
+         * Call the listener later on the main thread (by default), with a snapshot of the pattern. The listener may
+         * use the view.
+         */
+        Posted,
+
+        /**
+         * Call the listener on a background thread (by default), with a snapshot of the pattern. The listener must not
+         * use the view.
+         */
+        Background
+    }
+
     /**
      * The call back abstract class for detecting patterns entered by the user.
      */
@@ -199,23 +248,261 @@ public class MaterialLockView extends View {
         }
     }
 
+    /**
+     * The call back abstract class for detecting patterns entered by the user, without creating any object per event.
+     * Every call receives the same {@link CompactPattern} instance, which is only valid during the call.
+     */
+    public static abstract class OnCompactPatternListener {
+
+        /**
+         * A new pattern has begun.
+         */
+        public void onPatternStart() {
+
+        }
+
+        /**
+         * The pattern was cleared.
+         */
+        public void onPatternCleared() {
+
+        }
+
+        /**
+         * The user extended the pattern currently being drawn by one cell.
+         *
+         * @param pattern The pattern with newly added cell.
+         */
+        public void onPatternCellAdded(CompactPattern pattern) {
+
+        }
+
+        /**
+         * The user extended the pattern currently being drawn by one or more cells during one touch event. Only called
+         * while {@link #setCoalesceCellsAdded(boolean) coalescing}, instead of {@link
+         * #onPatternCellAdded(CompactPattern)} for each cell. Calls it once by default.
+         *
+         * @param pattern    The pattern with newly added cells.
+         * @param addedCount The number of cells added, the last ones of the pattern.
+         */
+        public void onPatternCellsAdded(CompactPattern pattern, int addedCount) {
+            onPatternCellAdded(pattern);
+        }
+
+        /**
+         * A pattern was detected from the user.
+         *
+         * @param pattern The pattern.
+         */
+        public void onPatternDetected(CompactPattern pattern) {
+
+        }
+    }
+
+    /**
+     * A pattern and display mode posted from any thread, never changed once created.
+     */
+    private static final class PostedPattern {
+
+        final DisplayMode displayMode;
+
+        /**
+         * The cells as {@code row * MAX_LOCK_SIZE + column}, whatever the size of the grid, {@code null} to keep the
+         * current pattern.
+         */
+        final byte[] cells;
+
+        PostedPattern(DisplayMode displayMode, byte[] cells) {
+            this.displayMode = displayMode;
+            this.cells = cells;
+        }
+    }
+
+    /**
+     * Dispatches to an {@link OnPatternListener}, building its list and simple pattern.
+     */
+    private static class PatternListenerAdapter extends OnCompactPatternListener {
+
+        private final OnPatternListener mListener;
+        private final List<Cell> mPattern;
+
+        /**
+         * @param pattern The read-only pattern of the view, or {@code null} to give the listener a new list built
+         *                from each call's pattern.
+         */
+        PatternListenerAdapter(OnPatternListener listener, List<Cell> pattern) {
+            mListener = listener;
+            mPattern = pattern;
+        }
+
+        private List<Cell> getPattern(CompactPattern pattern) {
+            if (mPattern != null) {
+                return mPattern;
+            }
+            final int size = pattern.size();
+            final int lockSize = pattern.getLockSize();
+            final ArrayList<Cell> cells = new ArrayList<Cell>(size);
+            for (int i = 0; i < size; i++) {
+                cells.add(Cell.ofId(pattern.getId(i), lockSize));
+            }
+            return Collections.unmodifiableList(cells);
+        }
+
+        @Override
+        public void onPatternStart() {
+            mListener.onPatternStart();
+        }
+
+        @Override
+        public void onPatternCleared() {
+            mListener.onPatternCleared();
+        }
+
+        @Override
+        public void onPatternCellAdded(CompactPattern pattern) {
+            mListener.onPatternCellAdded(getPattern(pattern), pattern.toSimplePattern());
+        }
+
+        @Override
+        public void onPatternDetected(CompactPattern pattern) {
+            mListener.onPatternDetected(getPattern(pattern), pattern.toSimplePattern());
+        }
+    }
+
+    /**
+     * Calls a listener through an executor. Each call gets its own copy of the pattern, so the listener sees the
+     * pattern as it was when the event happened, whatever the view did since, and the view never waits for it.
+     */
+    private static class PatternListenerDispatcher extends OnCompactPatternListener {
+
+        private final OnCompactPatternListener mListener;
+        private final Executor mExecutor;
+
+        PatternListenerDispatcher(OnCompactPatternListener listener, Executor executor) {
+            mListener = listener;
+            mExecutor = executor;
+        }
+
+        private static CompactPattern snapshot(CompactPattern pattern) {
+            final CompactPattern snapshot = new CompactPattern();
+            snapshot.set(pattern);
+            return snapshot;
+        }
+
+        @Override
+        public void onPatternStart() {
+            mExecutor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    mListener.onPatternStart();
+                }
+
+            });
+        }
+
+        @Override
+        public void onPatternCleared() {
+            mExecutor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    mListener.onPatternCleared();
+                }
+
+            });
+        }
+
+        @Override
+        public void onPatternCellAdded(CompactPattern pattern) {
+            final CompactPattern snapshot = snapshot(pattern);
+            mExecutor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    mListener.onPatternCellAdded(snapshot);
+                }
+
+            });
+        }
+
+        @Override
+        public void onPatternCellsAdded(CompactPattern pattern, final int addedCount) {
+            final CompactPattern snapshot = snapshot(pattern);
+            mExecutor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    mListener.onPatternCellsAdded(snapshot, addedCount);
+                }
+
+            });
+        }
+
+        @Override
+        public void onPatternDetected(CompactPattern pattern) {
+            final CompactPattern snapshot = snapshot(pattern);
+            mExecutor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    mListener.onPatternDetected(snapshot);
+                }
+
+            });
+        }
+    }
+
+
+    /**
+     * Receives the performance measurements of the view, see {@link #setOnMetricsListener(OnMetricsListener)}.
+     */
+    public interface OnMetricsListener {
+
+        /**
+         * Called at the end of every gesture.
+         *
+         * @param metrics The measurements since the previous call. They are reset once this returns, so copy whatever
+         *                must be kept.
+         */
+        void onMetrics(LockViewMetrics metrics);
+
+    }
 
     /**
+     * The default number of rows (and columns) of the grid.
+     *
      * @author Aman Tonk
      */
-    public static final int LOCK_SIZE = 3;
+    public static final int LOCK_SIZE = LockGrid.LOCK_SIZE;
 
     /**
-     * The size of the pattern's matrix.
+     * The size of the default pattern's matrix.
      */
     public static final int MATRIX_SIZE = LOCK_SIZE * LOCK_SIZE;
 
-    private static final boolean PROFILE_DRAWING = false;
-    private final CellState[][] mCellStates;
+    /**
+     * The smallest supported number of rows (and columns) of the grid.
+     */
+    public static final int MIN_LOCK_SIZE = LockGrid.MIN_LOCK_SIZE;
+
+    /**
+     * The largest supported number of rows (and columns) of the grid.
+     */
+    public static final int MAX_LOCK_SIZE = LockGrid.MAX_LOCK_SIZE;
+
+    /**
+     * The size of the largest supported pattern's matrix.
+     */
+    public static final int MAX_MATRIX_SIZE = LockGrid.MAX_MATRIX_SIZE;
+
+    /**
+     * Per-cell state, indexed by {@code row * mLockSize + column}. Allocated once for the largest grid.
+     */
+    private final CellState[] mCellStates;
     private final int mDotSize;
     private final int mDotSizeActivated;
     private final int mPathWidth;
-    private boolean mDrawingProfilingStarted = false;
     private Paint mPaint = new Paint();
     private Paint mPathPaint = new Paint();
 
@@ -225,21 +512,83 @@ public class MaterialLockView extends View {
      */
     private static final int MILLIS_PER_CIRCLE_ANIMATING = 700;
 
+    /**
+     * Loop count of the {@link DisplayMode#Animate} mode to replay the pattern until the mode changes.
+     */
+    public static final int ANIMATE_LOOP_INFINITE = -1;
+
     /**
      * This can be used to avoid updating the display for very small motions or noisy panels. It didn't seem to have
      * much impact on the devices tested, so currently set to 0.
      */
     private static final float DRAG_THRESHHOLD = 0.0f;
 
-    private OnPatternListener mOnPatternListener;
-    private ArrayList<Cell> mPattern = new ArrayList<>(MATRIX_SIZE);
+    private OnCompactPatternListener mOnPatternListener;
+
+    /**
+     * Calls the listeners set with {@link DispatchPolicy#Background} and no executor, created on first use.
+     */
+    private static Executor sListenerExecutor;
+    private ArrayList<Cell> mPattern = new ArrayList<>(MAX_MATRIX_SIZE);
+
+    /**
+     * Read-only view of {@link #mPattern}, given to {@link OnPatternListener}s.
+     */
+    private final List<Cell> mReadOnlyPattern = Collections.unmodifiableList(mPattern);
+
+    /**
+     * {@link #mPattern} as cell IDs. It adds the hits of the gesture, the view follows through {@link
+     * #addCellToPattern(Cell)}.
+     */
+    private final PatternBuilder mPatternBuilder = new PatternBuilder(new PatternBuilder.OnCellAddedListener() {
+
+        @Override
+        public void onCellAdded(int id) {
+            addCellToPattern(Cell.ofId(id, mLockSize));
+        }
+
+    });
+
+    /**
+     * Changes every time the pattern is cleared or set, so that late results (e.g. of a {@link PatternVerifier}) can
+     * tell whether they still apply.
+     */
+    private int mPatternGeneration = 0;
+
+    /**
+     * The pattern and display mode last posted from any thread by {@link #postPattern(DisplayMode, List)} or {@link
+     * #postDisplayMode(DisplayMode)}, until the main thread applies it before the next frame. {@code null} if there is
+     * none; a post replaces the one not applied yet.
+     */
+    private final AtomicReference<PostedPattern> mPostedPattern = new AtomicReference<PostedPattern>();
+
+    /**
+     * The cells of the posted pattern being applied, reused for every post.
+     */
+    private final ArrayList<Cell> mPostedCells = new ArrayList<Cell>(MAX_MATRIX_SIZE);
+
+    private final Executor mMainThreadExecutor = new PatternVerifier.MainThreadExecutor();
+
+    private final Runnable mApplyPostedPattern = new Runnable() {
+
+        @Override
+        public void run() {
+            applyPostedPattern();
+        }
+
+    };
+
+    /**
+     * Number of rows (and columns) of the grid.
+     */
+    private int mLockSize = LOCK_SIZE;
 
     /**
      * Lookup table for the circles of the pattern we are currently drawing. This will be the cells of the complete
      * pattern unless we are animating, in which case we use this to hold the cells we are drawing for the in progress
-     * animation.
+     * animation. Holds cell IDs ({@code row * mLockSize + column}).
      */
-    private boolean[][] mPatternDrawLookup = new boolean[LOCK_SIZE][LOCK_SIZE];
+    private final CellBitSet mPatternDrawLookup = new CellBitSet();
 
     /**
      * the in progress point: - during interaction: where the user's finger is - during animation: the current tip of
@@ -248,7 +597,28 @@ public class MaterialLockView extends View {
     private float mInProgressX = -1;
     private float mInProgressY = -1;
 
-    private long mAnimatingPeriodStart;
+    /**
+     * The {@link DisplayMode#Animate} replay is a sequence of steps, one per cell plus one: in step {@code n} the first
+     * {@code n} cells are shown. Steps where the line moves to the next cell run {@link #mAnimateAnimator}, the other
+     * ones (nothing shown yet, pause on the complete pattern) don't change and just wait for the next step.
+     */
+    private int mAnimateStep;
+    private int mAnimateLoopsDone;
+    private int mAnimateLoopCount = ANIMATE_LOOP_INFINITE;
+    private float mAnimateSpeed = 1f;
+    private boolean mAnimateRunning = false;
+    private boolean mAnimateStepCancelled = false;
+    private ValueAnimator mAnimateAnimator;
+    private boolean mAttachedToWindow = false;
+
+    private final Runnable mAnimateNextStep = new Runnable() {
+
+        @Override
+        public void run() {
+            nextAnimateStep();
+        }
+
+    };
 
     private DisplayMode mPatternDisplayMode = DisplayMode.Correct;
     private boolean mInputEnabled = true;
@@ -261,25 +631,127 @@ public class MaterialLockView extends View {
     private float mSquareWidth;
     private float mSquareHeight;
 
+    private final CellHitTester mHitTester = new CellHitTester();
+
+    private final int[] mSegmentHits = new int[CellHitTester.MAX_SEGMENT_HITS];
+
     private final Path mCurrentPath = new Path();
+
+    /**
+     * The segments between the cells of the pattern drawn so far. It is extended in {@link #addCellToPattern(Cell)}
+     * rather than rebuilt in {@link #onDraw(Canvas)}, only its last point follows the line end animation.
+     */
+    private final Path mCommittedPath = new Path();
+
+    /**
+     * Number of cells of {@link #mPattern} in {@link #mCommittedPath}.
+     */
+    private int mCommittedPathCells = 0;
     private final Rect mInvalidate = new Rect();
     private final Rect mTmpInvalidateRect = new Rect();
 
-    private int mRegularColor;
-    private int mErrorColor;
-    private int mSuccessColor;
+    /**
+     * The clip bounds of the canvas in {@link #onDraw(Canvas)}: dots outside of them are not drawn.
+     */
+    private final Rect mDrawClipBounds = new Rect();
 
-    private Interpolator mFastOutSlowInInterpolator;
-    private Interpolator mLinearOutSlowInInterpolator;
+    /**
+     * Every dot of the grid at rest (regular size, not moved, scaled or faded), as an alpha mask which is tinted with
+     * the regular color when drawn, so color changes don't need a new one. Built on the first draw after a geometry
+     * change, {@code null} until then.
+     */
+    private Bitmap mIdleLayer;
+    private int mIdleLayerLeft, mIdleLayerTop;
 
-    public static class CellState {
-        public float scale = 1.0f;
-        public float translateY = 0.0f;
-        public float alpha = 1.0f;
-        public float size;
-        public float lineEndX = Float.MIN_VALUE;
+    /**
+     * The dots which don't look as in {@link #mIdleLayer} in the current frame: they are cut out of it and drawn on
+     * their own.
+     */
+    private final CellBitSet mActiveDots = new CellBitSet();
+
+    /**
+     * The dots to draw in the current frame, drawn in batches of the same color and size by
+     * {@link #drawDotBatches(Canvas)}: their centers as x, y pairs, their colors (with alpha) and sizes.
+     */
+    private final float[] mDotCenters = new float[MAX_MATRIX_SIZE * 2];
+    private final int[] mDotColors = new int[MAX_MATRIX_SIZE];
+    private final float[] mDotSizes = new float[MAX_MATRIX_SIZE];
+    private int mDotCount;
+
+    /**
+     * The centers of one batch of dots, and the dots already drawn in the current frame.
+     */
+    private final float[] mDotBatch = new float[MAX_MATRIX_SIZE * 2];
+    private final CellBitSet mDrawnDots = new CellBitSet();
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    /**
+     * Whether cells added during one touch event are reported by one {@link
+     * OnCompactPatternListener#onPatternCellsAdded(CompactPattern, int)} call, and how many are waiting for it.
+     */
+    private boolean mCoalesceCellsAdded = false;
+    private int mPendingCellsAdded = 0;
+
+    /**
+     * Places the end of the in progress segment where the finger will be {@link #mTouchPredictionHorizon} after the
+     * last touch sample. Off while the horizon is 0.
+     */
+    private final TouchPredictor mTouchPredictor = new TouchPredictor();
+    private long mTouchPredictionHorizon = 0;
+
+    /**
+     * Measurements for {@link #mOnMetricsListener}, {@code null} while there is none.
+     */
+    private LockViewMetrics mMetrics;
+    private OnMetricsListener mOnMetricsListener;
+
+    /**
+     * Time of the touch event being handled, and of the oldest one whose changes are not drawn yet, in the {@link
+     * System#nanoTime()} time base (event times use the same monotonic clock). 0 if none.
+     */
+    private long mHandledInputTime = 0;
+    private long mUndrawnInputTime = 0;
+
+    /**
+     * Cell animations started since the current pattern started.
+     */
+    private int mPatternAnimations = 0;
+
+    private int mRegularColor;
+    private int mErrorColor;
+    private int mSuccessColor;
+
+    private Interpolator mFastOutSlowInInterpolator;
+    private Interpolator mLinearOutSlowInInterpolator;
+
+    public static class CellState {
+        public float scale = 1.0f;
+        public float translateY = 0.0f;
+        public float alpha = 1.0f;
+        public float size;
+        public float lineEndX = Float.MIN_VALUE;
         public float lineEndY = Float.MIN_VALUE;
-        public ValueAnimator lineAnimator;
+
+        /**
+         * Animates the size of the dot. Created on the first hit of the cell, then restarted on every hit.
+         */
+        public FloatAnimator sizeAnimator;
+
+        /**
+         * Animates the end of the line to the center of the dot. Created on the first hit of the cell, then restarted
+         * on every hit. It used to be a {@link ValueAnimator}, created on every hit.
+         */
+        public FloatAnimator lineAnimator;
+
+        private boolean sizeGrowing;
+        private float lineStartX, lineStartY;
+        private float lineTargetX, lineTargetY;
+
+        /**
+         * The ID of the cell, i.e. the index of the state.
+         */
+        private int id;
     }
 
     public MaterialLockView(Context context) {
@@ -298,7 +770,10 @@ public class MaterialLockView extends View {
         mRegularColor = typedArray.getColor(R.styleable.MaterialLockView_LOCK_COLOR,Color.WHITE);
         mErrorColor = typedArray.getColor(R.styleable.MaterialLockView_WRONG_COLOR,Color.RED);
         mSuccessColor = typedArray.getColor(R.styleable.MaterialLockView_CORRECT_COLOR,Color.GREEN);
+        final int lockSize = typedArray.getInt(R.styleable.MaterialLockView_LOCK_SIZE, LOCK_SIZE);
         typedArray.recycle();
+        LockGrid.checkLockSize(lockSize);
+        mLockSize = lockSize;
 
 
         mPathPaint.setColor(mRegularColor);
@@ -312,13 +787,15 @@ public class MaterialLockView extends View {
         mDotSizeActivated = dpToPx(28);
         mPaint.setAntiAlias(true);
         mPaint.setDither(true);
-
-        mCellStates = new CellState[LOCK_SIZE][LOCK_SIZE];
-        for (int i = 0; i < LOCK_SIZE; i++) {
-            for (int j = 0; j < LOCK_SIZE; j++) {
-                mCellStates[i][j] = new CellState();
-                mCellStates[i][j].size = mDotSize;
-            }
+        // dots are drawn as round points, as wide as the stroke
+        mPaint.setStyle(Paint.Style.STROKE);
+        mPaint.setStrokeCap(Paint.Cap.ROUND);
+
+        mCellStates = new CellState[MAX_MATRIX_SIZE];
+        for (int i = 0; i < MAX_MATRIX_SIZE; i++) {
+            mCellStates[i] = new CellState();
+            mCellStates[i].size = mDotSize;
+            mCellStates[i].id = i;
         }
 
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP
@@ -330,10 +807,87 @@ public class MaterialLockView extends View {
         }
     }
 
+    /**
+     * @return The states of the cells of the current grid, indexed by {@code [row][column]}. The states are the
+     * view's own, but the arrays holding them are built on every call: use {@link #getCellStateArray()} or {@link
+     * #getCellState(int, int)} where that matters.
+     */
     public CellState[][] getCellStates() {
+        final int lockSize = mLockSize;
+        final CellState[][] states = new CellState[lockSize][lockSize];
+        for (int i = 0; i < lockSize; i++) {
+            System.arraycopy(mCellStates, i * lockSize, states[i], 0, lockSize);
+        }
+        return states;
+    }
+
+    /**
+     * @return The per-cell states, indexed by {@code row * getLockSize() + column}. Only the first
+     * {@code getLockSize() * getLockSize()} entries belong to the current grid.
+     */
+    public CellState[] getCellStateArray() {
         return mCellStates;
     }
 
+    /**
+     * @param row    The row of the cell.
+     * @param column The column of the cell.
+     * @return The state of the cell.
+     */
+    public CellState getCellState(int row, int column) {
+        return mCellStates[row * mLockSize + column];
+    }
+
+    /**
+     * @return The number of rows (and columns) of the grid.
+     */
+    public int getLockSize() {
+        return mLockSize;
+    }
+
+    /**
+     * Set the number of rows (and columns) of the grid. This clears the current pattern.
+     *
+     * @param lockSize The number of rows (and columns), in range {@link #MIN_LOCK_SIZE}-{@link #MAX_LOCK_SIZE}.
+     */
+    public void setLockSize(int lockSize) {
+        LockGrid.checkLockSize(lockSize);
+        if (lockSize == mLockSize) {
+            return;
+        }
+        cancelLineAnimations();
+        mLockSize = lockSize;
+        for (int i = 0; i < MAX_MATRIX_SIZE; i++) {
+            final CellState state = mCellStates[i];
+            if (state.sizeAnimator != null) {
+                state.sizeAnimator.cancel();
+            }
+            state.size = mDotSize;
+            state.lineEndX = Float.MIN_VALUE;
+            state.lineEndY = Float.MIN_VALUE;
+        }
+        mPatternInProgress = false;
+        updateSquareSize(getWidth(), getHeight());
+        resetPattern();
+    }
+
+    /**
+     * @return Whether a cell is only hit inside the circle around its dot, rather than anywhere in its hit box.
+     */
+    public boolean isCircularHitRegions() {
+        return mHitTester.isCircular();
+    }
+
+    /**
+     * Set whether a cell is only hit inside the circle around its dot, rather than anywhere in its hit box. Circular
+     * regions make diagonal moves less likely to catch a neighbouring cell.
+     *
+     * @param circularHitRegions Whether to use circular hit regions.
+     */
+    public void setCircularHitRegions(boolean circularHitRegions) {
+        mHitTester.setCircular(circularHitRegions);
+    }
+
     /**
      * @return Whether the view is in stealth mode.
      */
@@ -369,12 +923,164 @@ public class MaterialLockView extends View {
     }
 
     /**
-     * Set the call back for pattern detection.
+     * Set the call back for pattern detection. It replaces the listener set by
+     * {@link #setOnCompactPatternListener(OnCompactPatternListener)}.
      *
      * @param onPatternListener The call back.
      */
     public void setOnPatternListener(OnPatternListener onPatternListener) {
-        mOnPatternListener = onPatternListener;
+        setOnPatternListener(onPatternListener, DispatchPolicy.Synchronous, null);
+    }
+
+    /**
+     * Set the call back for pattern detection, called as the policy says. It replaces the listener set by
+     * {@link #setOnCompactPatternListener(OnCompactPatternListener)}. Unless synchronous, the listener gets its own
+     * list of cells per call.
+     *
+     * @param onPatternListener The call back.
+     * @param policy            How to call it.
+     * @param executor          Calls it, see {@link #setOnCompactPatternListener(OnCompactPatternListener,
+     *                          DispatchPolicy, Executor)}.
+     */
+    public void setOnPatternListener(OnPatternListener onPatternListener, @NonNull DispatchPolicy policy,
+                                     @Nullable Executor executor) {
+        setOnCompactPatternListener(onPatternListener == null ? null : new PatternListenerAdapter(onPatternListener,
+                policy == DispatchPolicy.Synchronous ? mReadOnlyPattern : null), policy, executor);
+    }
+
+    /**
+     * Set the call back for pattern detection which receives the pattern as cell IDs, without creating any object per
+     * event. It replaces the listener set by {@link #setOnPatternListener(OnPatternListener)}.
+     *
+     * @param onPatternListener The call back.
+     */
+    public void setOnCompactPatternListener(OnCompactPatternListener onPatternListener) {
+        setOnCompactPatternListener(onPatternListener, DispatchPolicy.Synchronous, null);
+    }
+
+    /**
+     * Set the call back for pattern detection, called as the policy says. It replaces the listener set by
+     * {@link #setOnPatternListener(OnPatternListener)}.
+     * <p/>
+     * A synchronous listener runs while the view handles the touch event, so a slow one delays the next frame. Posted
+     * and background listeners run later, each call with its own copy of the pattern as it was at the event, and the
+     * view never waits for them. That costs a copy of the pattern and a task per call.
+     *
+     * @param onPatternListener The call back.
+     * @param policy            How to call it.
+     * @param executor          Calls the listener, one task at a time and in order, {@code null} for the main thread
+     *                          if posted, or for a background thread shared by all views. Must be {@code null} if
+     *                          synchronous.
+     */
+    public void setOnCompactPatternListener(OnCompactPatternListener onPatternListener,
+                                            @NonNull DispatchPolicy policy, @Nullable Executor executor) {
+        if (policy == DispatchPolicy.Synchronous) {
+            if (executor != null) {
+                throw new IllegalArgumentException("synchronous dispatch takes no executor");
+            }
+        } else if (executor == null) {
+            executor = policy == DispatchPolicy.Posted ? mMainThreadExecutor : getListenerExecutor();
+        }
+        mOnPatternListener = onPatternListener == null || executor == null ? onPatternListener
+                : new PatternListenerDispatcher(onPatternListener, executor);
+    }
+
+    private static synchronized Executor getListenerExecutor() {
+        if (sListenerExecutor == null) {
+            sListenerExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+                @Override
+                public Thread newThread(@NonNull Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "MaterialLockView listeners");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+
+            });
+        }
+        return sListenerExecutor;
+    }
+
+    /**
+     * Set whether the cells added to the pattern during one touch event are reported together, by one {@link
+     * OnCompactPatternListener#onPatternCellsAdded(CompactPattern, int)} call, rather than one call per cell. A fast
+     * move can cross several cells in one event; listeners doing real work per call then run once per event. An
+     * {@link OnPatternListener} gets one {@link OnPatternListener#onPatternCellAdded(List, String) onPatternCellAdded()}
+     * call per event, with the whole pattern.
+     *
+     * @param coalesce Whether to coalesce, {@code false} by default.
+     */
+    public void setCoalesceCellsAdded(boolean coalesce) {
+        if (!coalesce) {
+            notifyPendingCellsAdded();
+        }
+        mCoalesceCellsAdded = coalesce;
+    }
+
+    /**
+     * @return Whether cells added during one touch event are reported together.
+     */
+    public boolean isCoalesceCellsAdded() {
+        return mCoalesceCellsAdded;
+    }
+
+    /**
+     * Set the call back for performance measurements: input to frame latency, time spent handling moves and drawing,
+     * touch samples per event, invalidated areas and animations per pattern. Measuring allocates nothing once set,
+     * and costs a few clock reads per event and frame.
+     *
+     * @param onMetricsListener The call back, {@code null} to stop measuring.
+     */
+    public void setOnMetricsListener(OnMetricsListener onMetricsListener) {
+        mOnMetricsListener = onMetricsListener;
+        if (onMetricsListener == null) {
+            mMetrics = null;
+        } else if (mMetrics == null) {
+            mMetrics = new LockViewMetrics();
+        }
+        mUndrawnInputTime = 0;
+    }
+
+    /**
+     * Set how far ahead of the last touch event the in progress segment of the pattern is drawn: it follows the
+     * finger's extrapolated position rather than lagging one or two frames behind it. The lead is bounded to half a
+     * cell, and only the drawing is affected, not which cells are hit. Prediction errors are reported to the
+     * {@link #setOnMetricsListener(OnMetricsListener) metrics listener}.
+     *
+     * @param horizonMillis The prediction horizon, in milliseconds (about one frame, 16, is a good start). 0, the
+     *                      default, turns prediction off.
+     */
+    public void setTouchPredictionHorizon(int horizonMillis) {
+        if (horizonMillis < 0) {
+            throw new IllegalArgumentException("horizon must not be negative");
+        }
+        mTouchPredictionHorizon = horizonMillis * NANOS_PER_MILLI;
+        mTouchPredictor.reset();
+    }
+
+    /**
+     * @return The touch prediction horizon, in milliseconds, 0 if off.
+     */
+    public int getTouchPredictionHorizon() {
+        return (int) (mTouchPredictionHorizon / NANOS_PER_MILLI);
+    }
+
+    /**
+     * Set whether all lock views mark their touch handling, hit detection, drawing and listener calls as named
+     * sections ({@code MaterialLockView.*}) in system traces. It can be switched at any time, e.g. from a remote
+     * flag in production builds; while off, the sections cost nothing measurable. Needs API 18.
+     *
+     * @param enabled Whether to trace.
+     */
+    public static void setTracingEnabled(boolean enabled) {
+        LockTrace.setEnabled(enabled);
+    }
+
+    /**
+     * @return Whether lock views add sections to system traces.
+     */
+    public static boolean isTracingEnabled() {
+        return LockTrace.isEnabled();
     }
 
     /**
@@ -387,6 +1093,17 @@ public class MaterialLockView extends View {
         return (List<Cell>) mPattern.clone();
     }
 
+    /**
+     * @return The view's own compact pattern, updated as the pattern changes.
+     */
+    CompactPattern getCompactPattern() {
+        return mPatternBuilder.getPattern();
+    }
+
+    int getPatternGeneration() {
+        return mPatternGeneration;
+    }
+
     /**
      * Set the pattern explicitly (rather than waiting for the user to input a pattern).
      *
@@ -394,16 +1111,132 @@ public class MaterialLockView extends View {
      * @param pattern     The pattern.
      */
     public void setPattern(DisplayMode displayMode, List<Cell> pattern) {
+        for (Cell cell : pattern) {
+            if (cell.row >= mLockSize || cell.column >= mLockSize) {
+                throw new IllegalArgumentException("cell " + cell
+                        + " is outside of the " + mLockSize + "x" + mLockSize + " grid");
+            }
+        }
         mPattern.clear();
         mPattern.addAll(pattern);
+        mPatternBuilder.reset(mLockSize);
+        mPatternGeneration++;
         clearPatternDrawLookup();
         for (Cell cell : pattern) {
-            mPatternDrawLookup[cell.row][cell.column] = true;
+            final int id = cell.getId(mLockSize);
+            mPatternBuilder.append(id);
+            mPatternDrawLookup.add(id);
         }
+        rebuildCommittedPath(mPattern.size());
 
         setDisplayMode(displayMode);
     }
 
+    /**
+     * Set the pattern from any thread. It is applied on the main thread before the next frame, as by {@link
+     * #setPattern(DisplayMode, List)}; if posted again before that, only the last post is applied. The cells are
+     * copied, the list may change after this call. A pattern which doesn't fit the grid once applied is dropped, and
+     * touching the view drops the pattern not applied yet.
+     *
+     * @param displayMode How to display the pattern.
+     * @param pattern     The pattern.
+     */
+    public void postPattern(@NonNull DisplayMode displayMode, @NonNull List<Cell> pattern) {
+        final int size = pattern.size();
+        final byte[] cells = new byte[size];
+        for (int i = 0; i < size; i++) {
+            final Cell cell = pattern.get(i);
+            cells[i] = (byte) cell.getGridCell().getIndex();
+        }
+        postPattern(new PostedPattern(displayMode, cells));
+    }
+
+    /**
+     * Set the pattern from any thread, see {@link #postPattern(DisplayMode, List)}. The cells are copied, e.g. from
+     * a pattern given to a {@link DispatchPolicy#Background background} listener.
+     *
+     * @param displayMode How to display the pattern.
+     * @param pattern     The pattern.
+     */
+    public void postPattern(@NonNull DisplayMode displayMode, @NonNull CompactPattern pattern) {
+        final int size = pattern.size();
+        final byte[] cells = new byte[size];
+        for (int i = 0; i < size; i++) {
+            cells[i] = (byte) (pattern.getRow(i) * MAX_LOCK_SIZE + pattern.getColumn(i));
+        }
+        postPattern(new PostedPattern(displayMode, cells));
+    }
+
+    /**
+     * Set the display mode from any thread, applied on the main thread before the next frame as by {@link
+     * #setDisplayMode(DisplayMode)}. If a pattern is posted but not applied yet, it's applied with this mode.
+     *
+     * @param displayMode The display mode.
+     */
+    public void postDisplayMode(@NonNull DisplayMode displayMode) {
+        PostedPattern update = null;
+        while (true) {
+            final PostedPattern posted = mPostedPattern.get();
+            final byte[] cells = posted != null ? posted.cells : null;
+            // a retry only needs a new post if the cells to keep changed
+            if (update == null || update.cells != cells) {
+                update = new PostedPattern(displayMode, cells);
+            }
+            if (mPostedPattern.compareAndSet(posted, update)) {
+                if (posted == null) {
+                    schedulePostedPattern();
+                }
+                return;
+            }
+        }
+    }
+
+    private void postPattern(PostedPattern posted) {
+        if (posted.displayMode == DisplayMode.Animate && posted.cells.length == 0) {
+            throw new IllegalArgumentException("you must have a pattern to animate");
+        }
+        // only the first post since the last applied one needs to schedule it
+        if (mPostedPattern.getAndSet(posted) == null) {
+            schedulePostedPattern();
+        }
+    }
+
+    /**
+     * Schedules {@link #mApplyPostedPattern} on the main looper. Not with {@link #post(Runnable)}: from another thread,
+     * while the view is detached, it queues the task on that thread's run queue, which never runs below API 24.
+     */
+    private void schedulePostedPattern() {
+        mMainThreadExecutor.execute(mApplyPostedPattern);
+    }
+
+    /**
+     * Applies the last posted pattern or display mode, if any. Called on the main thread.
+     */
+    void applyPostedPattern() {
+        final PostedPattern posted = mPostedPattern.getAndSet(null);
+        if (posted == null) {
+            return;
+        }
+        if (posted.cells == null) {
+            if (posted.displayMode != DisplayMode.Animate || !mPattern.isEmpty()) {
+                setDisplayMode(posted.displayMode);
+            }
+            return;
+        }
+        final ArrayList<Cell> cells = mPostedCells;
+        cells.clear();
+        for (byte id : posted.cells) {
+            final Cell cell = Cell.sCells[id];
+            if (cell.row >= mLockSize || cell.column >= mLockSize) {
+                cells.clear();
+                return;
+            }
+            cells.add(cell);
+        }
+        setPattern(posted.displayMode, cells);
+        cells.clear();
+    }
+
     /**
      * Gets display mode.
      *
@@ -427,112 +1260,342 @@ public class MaterialLockView extends View {
                         "you must have a pattern to "
                                 + "animate if you want to set the display mode to animate");
             }
-            mAnimatingPeriodStart = SystemClock.elapsedRealtime();
-            final Cell first = mPattern.get(0);
-            mInProgressX = getCenterXForColumn(first.column);
-            mInProgressY = getCenterYForRow(first.row);
-            clearPatternDrawLookup();
+            stopPatternAnimation();
+            mAnimateStep = 0;
+            mAnimateLoopsDone = 0;
+            showAnimateStep(0);
         }
-        invalidate();
+        updatePatternAnimation();
+        invalidateView();
     }
 
-    private String getSimplePattern(List<Cell> pattern) {
-        StringBuilder stringBuilder = new StringBuilder();
-        for (Cell cell : pattern) {
-            stringBuilder.append(getSipmleCellPosition(cell));
-        }
-        return stringBuilder.toString();
-    }
-
-    private String getSipmleCellPosition(Cell cell) {
-        if (cell == null)
-            return "";
-        switch (cell.row) {
-            case 0:
-                switch (cell.column) {
-                    case 0:
-                        return "1";
-                    case 1:
-                        return "2";
-                    case 2:
-                        return "3";
-                }
-                break;
-            case 1:
-                switch (cell.column) {
-                    case 0:
-                        return "4";
-                    case 1:
-                        return "5";
-                    case 2:
-                        return "6";
+    /**
+     * @return The replay speed of the {@link DisplayMode#Animate} mode.
+     */
+    public float getAnimationSpeed() {
+        return mAnimateSpeed;
+    }
+
+    /**
+     * Set the replay speed of the {@link DisplayMode#Animate} mode. At speed 1 every cell takes 700 milliseconds.
+     *
+     * @param speed The speed, must be positive.
+     */
+    public void setAnimationSpeed(float speed) {
+        if (!(speed > 0)) {
+            throw new IllegalArgumentException("speed must be positive");
+        }
+        mAnimateSpeed = speed;
+    }
+
+    /**
+     * @return How many times the {@link DisplayMode#Animate} mode replays the pattern.
+     */
+    public int getAnimationLoopCount() {
+        return mAnimateLoopCount;
+    }
+
+    /**
+     * Set how many times the {@link DisplayMode#Animate} mode replays the pattern. Once done, the complete pattern
+     * stays on screen.
+     *
+     * @param loopCount The number of replays, or {@link #ANIMATE_LOOP_INFINITE}.
+     */
+    public void setAnimationLoopCount(int loopCount) {
+        if (loopCount <= 0 && loopCount != ANIMATE_LOOP_INFINITE) {
+            throw new IllegalArgumentException("loop count must be positive or ANIMATE_LOOP_INFINITE");
+        }
+        mAnimateLoopCount = loopCount;
+        updatePatternAnimation();
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        mAttachedToWindow = true;
+        updatePatternAnimation();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        mAttachedToWindow = false;
+        updatePatternAnimation();
+        mIdleLayer = null;
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    protected void onVisibilityChanged(@NonNull View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        updatePatternAnimation();
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        updatePatternAnimation();
+    }
+
+    private boolean isAnimateFinished() {
+        return mAnimateLoopCount != ANIMATE_LOOP_INFINITE && mAnimateLoopsDone >= mAnimateLoopCount;
+    }
+
+    /**
+     * Run the {@link DisplayMode#Animate} replay while the view is in that mode and can be seen, pause it otherwise.
+     */
+    private void updatePatternAnimation() {
+        final boolean run = mPatternDisplayMode == DisplayMode.Animate
+                && mAttachedToWindow && getWindowVisibility() == VISIBLE && isShown()
+                && !isAnimateFinished();
+        if (run == mAnimateRunning) {
+            return;
+        }
+        if (run) {
+            mAnimateRunning = true;
+            runAnimateStep();
+        } else {
+            stopPatternAnimation();
+        }
+    }
+
+    private void stopPatternAnimation() {
+        mAnimateRunning = false;
+        removeCallbacks(mAnimateNextStep);
+        if (mAnimateAnimator != null) {
+            mAnimateStepCancelled = true;
+            mAnimateAnimator.cancel();
+        }
+    }
+
+    /**
+     * Show the current step of the replay and schedule the next one: a moving line is animated on every frame, a
+     * step without movement just waits.
+     */
+    private void runAnimateStep() {
+        final int step = mAnimateStep;
+        showAnimateStep(step);
+        final long duration = (long) (MILLIS_PER_CIRCLE_ANIMATING / mAnimateSpeed);
+        if (step > 0 && step < mPattern.size()) {
+            if (mAnimateAnimator == null) {
+                mAnimateAnimator = createAnimateAnimator();
+            }
+            mAnimateStepCancelled = false;
+            mAnimateAnimator.setDuration(duration);
+            mAnimateAnimator.start();
+        } else {
+            postDelayed(mAnimateNextStep, duration);
+        }
+        invalidateView();
+    }
+
+    private void nextAnimateStep() {
+        if (!mAnimateRunning) {
+            return;
+        }
+        final int count = mPattern.size();
+        if (++mAnimateStep > count) {
+            mAnimateLoopsDone++;
+            if (isAnimateFinished()) {
+                // leave the complete pattern on screen
+                mAnimateStep = count;
+                mAnimateRunning = false;
+                return;
+            }
+            mAnimateStep = 0;
+        }
+        runAnimateStep();
+    }
+
+    /**
+     * Show the first cells of the pattern, with the in progress point on the last of them.
+     */
+    private void showAnimateStep(int step) {
+        final ArrayList<Cell> pattern = mPattern;
+        clearPatternDrawLookup();
+        for (int i = 0; i < step; i++) {
+            mPatternDrawLookup.add(pattern.get(i).getId(mLockSize));
+        }
+        rebuildCommittedPath(step);
+        final Cell cell = pattern.get(step > 0 ? step - 1 : 0);
+        mInProgressX = getCenterXForColumn(cell.column);
+        mInProgressY = getCenterYForRow(cell.row);
+    }
+
+    private ValueAnimator createAnimateAnimator() {
+        final ValueAnimator animator = ValueAnimator.ofFloat(0, 1);
+        animator.setInterpolator(new LinearInterpolator());
+        animator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+
+            @Override
+            public void onAnimationUpdate(ValueAnimator animation) {
+                final int step = mAnimateStep;
+                if (step <= 0 || step >= mPattern.size()) {
+                    return;
                 }
-                break;
-            case 2:
-                switch (cell.column) {
-                    case 0:
-                        return "7";
-                    case 1:
-                        return "8";
-                    case 2:
-                        return "9";
+                final float t = animation.getAnimatedFraction();
+                final Cell currentCell = mPattern.get(step - 1);
+                final Cell nextCell = mPattern.get(step);
+                final float centerX = getCenterXForColumn(currentCell.column);
+                final float centerY = getCenterYForRow(currentCell.row);
+                mInProgressX = centerX + t * (getCenterXForColumn(nextCell.column) - centerX);
+                mInProgressY = centerY + t * (getCenterYForRow(nextCell.row) - centerY);
+                invalidateView();
+            }
+
+        });
+        animator.addListener(new AnimatorListenerAdapter() {
+
+            @Override
+            public void onAnimationEnd(Animator animation) {
+                if (!mAnimateStepCancelled) {
+                    nextAnimateStep();
                 }
-                break;
+            }
 
-        }
-        return "";
+        });
+        return animator;
     }
 
     private void notifyCellAdded() {
+        if (mCoalesceCellsAdded) {
+            mPendingCellsAdded++;
+        } else if (mOnPatternListener != null) {
+            final boolean traced = LockTrace.begin(LockTrace.NOTIFY_CELL_ADDED);
+            try {
+                mOnPatternListener.onPatternCellAdded(mPatternBuilder.getPattern());
+            } finally {
+                LockTrace.end(traced);
+            }
+        }
+    }
+
+    /**
+     * Reports the cells added since the last call while coalescing, see {@link #setCoalesceCellsAdded(boolean)}.
+     */
+    private void notifyPendingCellsAdded() {
+        final int addedCount = mPendingCellsAdded;
+        if (addedCount == 0) {
+            return;
+        }
+        mPendingCellsAdded = 0;
         if (mOnPatternListener != null) {
-            mOnPatternListener.onPatternCellAdded(mPattern, getSimplePattern(mPattern));
+            final boolean traced = LockTrace.begin(LockTrace.NOTIFY_CELL_ADDED);
+            try {
+                mOnPatternListener.onPatternCellsAdded(mPatternBuilder.getPattern(), addedCount);
+            } finally {
+                LockTrace.end(traced);
+            }
         }
     }
 
     private void notifyPatternStarted() {
         if (mOnPatternListener != null) {
-            mOnPatternListener.onPatternStart();
+            final boolean traced = LockTrace.begin(LockTrace.NOTIFY_PATTERN_START);
+            try {
+                mOnPatternListener.onPatternStart();
+            } finally {
+                LockTrace.end(traced);
+            }
         }
     }
 
     private void notifyPatternDetected() {
+        notifyPendingCellsAdded();
+        if (mOnPatternListener != null) {
+            final boolean traced = LockTrace.begin(LockTrace.NOTIFY_PATTERN_DETECTED);
+            try {
+                mOnPatternListener.onPatternDetected(mPatternBuilder.getPattern());
+            } finally {
+                LockTrace.end(traced);
+            }
+        }
+    }
+
+    private void notifyPatternCleared() {
         if (mOnPatternListener != null) {
-            mOnPatternListener.onPatternDetected(mPattern, getSimplePattern(mPattern));
+            final boolean traced = LockTrace.begin(LockTrace.NOTIFY_PATTERN_CLEARED);
+            try {
+                mOnPatternListener.onPatternCleared();
+            } finally {
+                LockTrace.end(traced);
+            }
         }
     }
 
-    private void notifyPatternCleared() {
-        if (mOnPatternListener != null) {
-            mOnPatternListener.onPatternCleared();
+    /**
+     * Clear the pattern.
+     */
+    public void clearPattern() {
+        resetPattern();
+    }
+
+    /**
+     * Reset all pattern state.
+     */
+    private void resetPattern() {
+        mPendingCellsAdded = 0;
+        mPattern.clear();
+        mPatternBuilder.reset(mLockSize);
+        mPatternGeneration++;
+        clearPatternDrawLookup();
+        rebuildCommittedPath(0);
+        mPatternDisplayMode = DisplayMode.Correct;
+        updatePatternAnimation();
+        invalidateView();
+    }
+
+    /**
+     * Rebuild {@link #mCommittedPath} from the first cells of the pattern.
+     *
+     * @param cellCount The number of cells to include.
+     */
+    private void rebuildCommittedPath(int cellCount) {
+        mCommittedPath.rewind();
+        mCommittedPathCells = 0;
+        for (int i = 0; i < cellCount; i++) {
+            appendToCommittedPath(mPattern.get(i));
         }
     }
 
     /**
-     * Clear the pattern.
+     * Extend {@link #mCommittedPath} to the center of the given cell. The previous segment is completed first, in case
+     * its line end animation is still running.
      */
-    public void clearPattern() {
-        resetPattern();
+    private void appendToCommittedPath(Cell cell) {
+        final float centerX = getCenterXForColumn(cell.column);
+        final float centerY = getCenterYForRow(cell.row);
+        if (mCommittedPathCells == 0) {
+            mCommittedPath.moveTo(centerX, centerY);
+        } else {
+            if (mCommittedPathCells > 1) {
+                final Cell lastCell = mPattern.get(mCommittedPathCells - 1);
+                mCommittedPath.setLastPoint(getCenterXForColumn(lastCell.column),
+                        getCenterYForRow(lastCell.row));
+            }
+            mCommittedPath.lineTo(centerX, centerY);
+        }
+        mCommittedPathCells++;
     }
 
     /**
-     * Reset all pattern state.
+     * Move the end of {@link #mCommittedPath}, if its last cell is the one with the given state.
+     *
+     * @return Whether the path changed.
      */
-    private void resetPattern() {
-        mPattern.clear();
-        clearPatternDrawLookup();
-        mPatternDisplayMode = DisplayMode.Correct;
-        invalidate();
+    private boolean updateCommittedPathEnd(CellState state, float x, float y) {
+        final int count = mCommittedPathCells;
+        if (count > 1 && mCellStates[mPattern.get(count - 1).getId(mLockSize)] == state) {
+            mCommittedPath.setLastPoint(x, y);
+            return true;
+        }
+        return false;
     }
 
     /**
      * Clear the pattern lookup table.
      */
     private void clearPatternDrawLookup() {
-        for (int i = 0; i < LOCK_SIZE; i++) {
-            for (int j = 0; j < LOCK_SIZE; j++) {
-                mPatternDrawLookup[i][j] = false;
-            }
-        }
+        mPatternDrawLookup.clear();
     }
 
     /**
@@ -550,13 +1613,30 @@ public class MaterialLockView extends View {
         mInputEnabled = true;
     }
 
+    /**
+     * @return Whether the view accepts input.
+     */
+    public boolean isInputEnabled() {
+        return mInputEnabled;
+    }
+
     @Override
     protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        updateSquareSize(w, h);
+    }
+
+    private void updateSquareSize(int w, int h) {
         final int width = w - getPaddingLeft() - getPaddingRight();
-        mSquareWidth = width / (float) LOCK_SIZE;
+        mSquareWidth = width / (float) mLockSize;
 
         final int height = h - getPaddingTop() - getPaddingBottom();
-        mSquareHeight = height / (float) LOCK_SIZE;
+        mSquareHeight = height / (float) mLockSize;
+
+        mHitTester.setGeometry(getPaddingLeft(), getPaddingTop(),
+                mSquareWidth, mSquareHeight, mLockSize, mHitFactor);
+        mTouchPredictor.setMaxDistance(Math.max(0f, Math.min(mSquareWidth, mSquareHeight) / 2f));
+        rebuildCommittedPath(mCommittedPathCells);
+        mIdleLayer = null;
     }
 
     private int resolveMeasured(int measureSpec, int desired) {
@@ -593,53 +1673,44 @@ public class MaterialLockView extends View {
      * @param x The x coordinate.
      * @param y The y coordinate.
      */
-    @TargetApi(Build.VERSION_CODES.ECLAIR)
     private Cell detectAndAddHit(float x, float y) {
-        final Cell cell = checkForNewHit(x, y);
-        if (cell != null) {
-
-            // check for gaps in existing pattern
-            Cell fillInGapCell = null;
-            final ArrayList<Cell> pattern = mPattern;
-            if (!pattern.isEmpty()) {
-                final Cell lastCell = pattern.get(pattern.size() - 1);
-                int dRow = cell.row - lastCell.row;
-                int dColumn = cell.column - lastCell.column;
-
-                int fillInRow = lastCell.row;
-                int fillInColumn = lastCell.column;
-
-                if (Math.abs(dRow) == 2 && Math.abs(dColumn) != 1) {
-                    fillInRow = lastCell.row + ((dRow > 0) ? 1 : -1);
-                }
-
-                if (Math.abs(dColumn) == 2 && Math.abs(dRow) != 1) {
-                    fillInColumn = lastCell.column + ((dColumn > 0) ? 1 : -1);
-                }
-
-                fillInGapCell = Cell.of(fillInRow, fillInColumn);
-            }
+        final boolean traced = LockTrace.begin(LockTrace.HIT_DETECTION);
+        try {
+            return addHit(mHitTester.getCellHit(x, y));
+        } finally {
+            LockTrace.end(traced);
+        }
+    }
 
-            if (fillInGapCell != null
-                    && !mPatternDrawLookup[fillInGapCell.row][fillInGapCell.column]) {
-                addCellToPattern(fillInGapCell);
-            }
-            addCellToPattern(cell);
-            if (mEnableHapticFeedback) {
-                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ECLAIR)
-                    performHapticFeedback(
-                            HapticFeedbackConstants.VIRTUAL_KEY,
-                            HapticFeedbackConstants.FLAG_IGNORE_VIEW_SETTING
-                                    | HapticFeedbackConstants.FLAG_IGNORE_GLOBAL_SETTING);
-            }
-            return cell;
+    /**
+     * Adds the cell with the given ID to the current pattern, if it is not already part of it, filling in the cells
+     * skipped over since the last one (see {@link PatternBuilder#addHit(int)}).
+     *
+     * @param id The ID of the hit cell, or -1.
+     * @return The added cell, or {@code null} if nothing was added.
+     */
+    @TargetApi(Build.VERSION_CODES.ECLAIR)
+    private Cell addHit(int id) {
+        if (mPatternBuilder.addHit(id) == 0) {
+            return null;
         }
-        return null;
+        if (mEnableHapticFeedback) {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ECLAIR)
+                performHapticFeedback(
+                        HapticFeedbackConstants.VIRTUAL_KEY,
+                        HapticFeedbackConstants.FLAG_IGNORE_VIEW_SETTING
+                                | HapticFeedbackConstants.FLAG_IGNORE_GLOBAL_SETTING);
+        }
+        return mPattern.get(mPattern.size() - 1);
     }
 
+    /**
+     * Follows a cell {@link #mPatternBuilder} added.
+     */
     private void addCellToPattern(Cell newCell) {
-        mPatternDrawLookup[newCell.row][newCell.column] = true;
+        mPatternDrawLookup.add(newCell.getId(mLockSize));
         mPattern.add(newCell);
+        appendToCommittedPath(newCell);
         if (!mInStealthMode) {
             startCellActivatedAnimation(newCell);
         }
@@ -647,167 +1718,90 @@ public class MaterialLockView extends View {
     }
 
     private void startCellActivatedAnimation(Cell cell) {
-        final CellState cellState = mCellStates[cell.row][cell.column];
-        startSizeAnimation(mDotSize, mDotSizeActivated, 96,
-                mLinearOutSlowInInterpolator, cellState, new Runnable() {
-
-                    @Override
-                    public void run() {
-                        startSizeAnimation(mDotSizeActivated, mDotSize, 192,
-                                mFastOutSlowInInterpolator, cellState, null);
-                    }
-                });
+        final CellState cellState = mCellStates[cell.getId(mLockSize)];
+        prepareCellAnimators(cellState);
+        startSizeAnimation(cellState, true);
         startLineEndAnimation(cellState, mInProgressX, mInProgressY,
                 getCenterXForColumn(cell.column), getCenterYForRow(cell.row));
     }
 
-    private void startLineEndAnimation(final CellState state,
-                                       final float startX, final float startY, final float targetX,
-                                       final float targetY) {
-        /*
-         * Currently this animation looks unclear, we don't really need it...
-         */
-        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB)
+    /**
+     * Create the animators of a cell the first time it is hit. They are restarted on every later hit, so that drawing
+     * a pattern doesn't allocate anything.
+     */
+    private void prepareCellAnimators(final CellState state) {
+        if (state.sizeAnimator != null)
             return;
 
-        ValueAnimator valueAnimator = ValueAnimator.ofFloat(0, 1);
-        valueAnimator
-                .addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+        state.sizeAnimator = new FloatAnimator(mDotSize, mDotSizeActivated, 96);
+        state.sizeAnimator.addEventListener(new FloatAnimator.SimpleEventListener() {
 
-                    @Override
-                    public void onAnimationUpdate(ValueAnimator animation) {
-                        float t = (Float) animation.getAnimatedValue();
-                        state.lineEndX = (1 - t) * startX + t * targetX;
-                        state.lineEndY = (1 - t) * startY + t * targetY;
-                        invalidate();
-                    }
+            @Override
+            public void onAnimationUpdate(@NonNull FloatAnimator animator) {
+                final float previousSize = state.size;
+                state.size = animator.getAnimatedValue();
+                invalidateCell(state, Math.max(previousSize, state.size));
+            }// onAnimationUpdate()
 
-                });
-        valueAnimator.addListener(new AnimatorListenerAdapter() {
+            @Override
+            public void onAnimationCancel(@NonNull FloatAnimator animator) {
+                state.sizeGrowing = false;
+            }// onAnimationCancel()
 
             @Override
-            public void onAnimationEnd(Animator animation) {
-                state.lineAnimator = null;
-            }
+            public void onAnimationEnd(@NonNull FloatAnimator animator) {
+                if (state.sizeGrowing)
+                    startSizeAnimation(state, false);
+            }// onAnimationEnd()
 
         });
-        valueAnimator.setInterpolator(mFastOutSlowInInterpolator);
-        valueAnimator.setDuration(100);
-        valueAnimator.start();
-        state.lineAnimator = valueAnimator;
-    }
 
-    private void startSizeAnimation(float start, float end, long duration,
-                                    Interpolator interpolator, final CellState state,
-                                    final Runnable endRunnable) {
-        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB) {
-            FloatAnimator animator = new FloatAnimator(start, end, duration);
-            animator.addEventListener(new FloatAnimator.SimpleEventListener() {
+        state.lineAnimator = new FloatAnimator(0, 1, 100);
+        state.lineAnimator.addEventListener(new FloatAnimator.SimpleEventListener() {
 
-                @Override
-                public void onAnimationUpdate(FloatAnimator animator) {
-                    state.size = (Float) animator.getAnimatedValue();
-                    invalidate();
-                }// onAnimationUpdate()
-
-                @Override
-                public void onAnimationEnd(FloatAnimator animator) {
-                    if (endRunnable != null)
-                        endRunnable.run();
-                }// onAnimationEnd()
-
-            });
-            animator.start();
-        }// API < 11
-        else {
-            ValueAnimator valueAnimator = ValueAnimator.ofFloat(start, end);
-            valueAnimator
-                    .addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-
-                        @Override
-                        public void onAnimationUpdate(ValueAnimator animation) {
-                            state.size = (Float) animation.getAnimatedValue();
-                            invalidate();
-                        }
-
-                    });
-            if (endRunnable != null) {
-                valueAnimator.addListener(new AnimatorListenerAdapter() {
-
-                    @Override
-                    public void onAnimationEnd(Animator animation) {
-                        if (endRunnable != null)
-                            endRunnable.run();
-                    }
-
-                });
-            }
-            valueAnimator.setInterpolator(interpolator);
-            valueAnimator.setDuration(duration);
-            valueAnimator.start();
-        }// API 11+
-    }// startSizeAnimation()
-
-    // helper method to find which cell a point maps to
-    private Cell checkForNewHit(float x, float y) {
-
-        final int rowHit = getRowHit(y);
-        if (rowHit < 0) {
-            return null;
-        }
-        final int columnHit = getColumnHit(x);
-        if (columnHit < 0) {
-            return null;
-        }
+            @Override
+            public void onAnimationUpdate(@NonNull FloatAnimator animator) {
+                float t = animator.getAnimatedValue();
+                state.lineEndX = (1 - t) * state.lineStartX + t * state.lineTargetX;
+                state.lineEndY = (1 - t) * state.lineStartY + t * state.lineTargetY;
+                if (updateCommittedPathEnd(state, state.lineEndX, state.lineEndY)) {
+                    invalidateLineEnd(state);
+                }
+            }// onAnimationUpdate()
 
-        if (mPatternDrawLookup[rowHit][columnHit]) {
-            return null;
-        }
-        return Cell.of(rowHit, columnHit);
+        });
     }
 
-    /**
-     * Helper method to find the row that y falls into.
-     *
-     * @param y The y coordinate
-     * @return The row that y falls in, or -1 if it falls in no row.
-     */
-    private int getRowHit(float y) {
-
-        final float squareHeight = mSquareHeight;
-        float hitSize = squareHeight * mHitFactor;
-
-        float offset = getPaddingTop() + (squareHeight - hitSize) / 2f;
-        for (int i = 0; i < LOCK_SIZE; i++) {
-
-            final float hitTop = offset + squareHeight * i;
-            if (y >= hitTop && y <= hitTop + hitSize) {
-                return i;
-            }
-        }
-        return -1;
+    private void startLineEndAnimation(CellState state, float startX, float startY,
+                                       float targetX, float targetY) {
+        final FloatAnimator animator = state.lineAnimator;
+        animator.cancel();
+        mPatternAnimations++;
+        state.lineStartX = startX;
+        state.lineStartY = startY;
+        state.lineTargetX = targetX;
+        state.lineTargetY = targetY;
+        animator.setInterpolator(mFastOutSlowInInterpolator);
+        animator.start();
     }
 
     /**
-     * Helper method to find the column x fallis into.
-     *
-     * @param x The x coordinate.
-     * @return The column that x falls in, or -1 if it falls in no column.
+     * Grow the dot to its activated size, or shrink it back, which happens once it has grown.
      */
-    private int getColumnHit(float x) {
-        final float squareWidth = mSquareWidth;
-        float hitSize = squareWidth * mHitFactor;
-
-        float offset = getPaddingLeft() + (squareWidth - hitSize) / 2f;
-        for (int i = 0; i < LOCK_SIZE; i++) {
-
-            final float hitLeft = offset + squareWidth * i;
-            if (x >= hitLeft && x <= hitLeft + hitSize) {
-                return i;
-            }
+    private void startSizeAnimation(CellState state, boolean grow) {
+        final FloatAnimator animator = state.sizeAnimator;
+        animator.cancel();
+        mPatternAnimations++;
+        state.sizeGrowing = grow;
+        if (grow) {
+            animator.setValues(mDotSize, mDotSizeActivated, 96);
+            animator.setInterpolator(mLinearOutSlowInInterpolator);
+        } else {
+            animator.setValues(mDotSizeActivated, mDotSize, 192);
+            animator.setInterpolator(mFastOutSlowInInterpolator);
         }
-        return -1;
-    }
+        animator.start();
+    }// startSizeAnimation()
 
     @Override
     public boolean onHoverEvent(MotionEvent event) {
@@ -837,16 +1831,45 @@ public class MaterialLockView extends View {
             return false;
         }
 
+        final boolean traced = LockTrace.begin(LockTrace.TOUCH_EVENT);
+        try {
+            final LockViewMetrics metrics = mMetrics;
+            if (metrics == null) {
+                return handleTouchEvent(event);
+            }
+            mHandledInputTime = event.getEventTime() * NANOS_PER_MILLI;
+            final long start = System.nanoTime();
+            final boolean handled = handleTouchEvent(event);
+            if (event.getAction() == MotionEvent.ACTION_MOVE) {
+                metrics.getMoveHandlingTime().record(System.nanoTime() - start);
+                metrics.getSamplesPerEvent().record(event.getHistorySize() + 1);
+            }
+            mHandledInputTime = 0;
+            return handled;
+        } finally {
+            LockTrace.end(traced);
+        }
+    }
+
+    private boolean handleTouchEvent(MotionEvent event) {
         switch (event.getAction()) {
             case MotionEvent.ACTION_DOWN:
                 handleActionDown(event);
+                notifyPendingCellsAdded();
                 return true;
             case MotionEvent.ACTION_UP:
                 handleActionUp(event);
                 return true;
-            case MotionEvent.ACTION_MOVE:
-                handleActionMove(event);
+            case MotionEvent.ACTION_MOVE: {
+                final boolean traced = LockTrace.begin(LockTrace.MOVE);
+                try {
+                    handleActionMove(event);
+                    notifyPendingCellsAdded();
+                } finally {
+                    LockTrace.end(traced);
+                }
                 return true;
+            }
             case MotionEvent.ACTION_CANCEL:
             /*
              * Original source check for mPatternInProgress == true first before
@@ -858,13 +1881,7 @@ public class MaterialLockView extends View {
                 mPatternInProgress = false;
                 resetPattern();
                 notifyPatternCleared();
-
-                if (PROFILE_DRAWING) {
-                    if (mDrawingProfilingStarted) {
-                        Debug.stopMethodTracing();
-                        mDrawingProfilingStarted = false;
-                    }
-                }
+                reportMetrics();
                 return true;
         }
         return false;
@@ -878,14 +1895,41 @@ public class MaterialLockView extends View {
         final int historySize = event.getHistorySize();
         mTmpInvalidateRect.setEmpty();
         boolean invalidateNow = false;
+        float previousX = mInProgressX;
+        float previousY = mInProgressY;
         for (int i = 0; i < historySize + 1; i++) {
             final float x = i < historySize ? event.getHistoricalX(i) : event
                     .getX();
             final float y = i < historySize ? event.getHistoricalY(i) : event
                     .getY();
-            Cell hitCell = detectAndAddHit(x, y);
+            if (mTouchPredictionHorizon > 0) {
+                addPredictorSample(x, y, i < historySize ? event.getHistoricalEventTime(i) : event.getEventTime());
+            }
+
+            // add every cell the finger crossed since the previous sample, so
+            // that fast swipes don't jump over cells between two samples
+            final boolean wasEmpty = mPattern.isEmpty();
+            Cell hitCell = null;
+            final boolean traced = LockTrace.begin(LockTrace.HIT_DETECTION);
+            try {
+                final int hitCount = mHitTester.getCellHits(previousX, previousY, x, y, mSegmentHits);
+                for (int h = 0; h < hitCount; h++) {
+                    final Cell cell = addHit(mSegmentHits[h]);
+                    if (cell != null) {
+                        if (hitCell != null) {
+                            unionCellInvalidateRect(hitCell);
+                        }
+                        hitCell = cell;
+                    }
+                }
+            } finally {
+                LockTrace.end(traced);
+            }
+            previousX = x;
+            previousY = y;
+
             final int patternSize = mPattern.size();
-            if (hitCell != null && patternSize == 1) {
+            if (hitCell != null && wasEmpty) {
                 mPatternInProgress = true;
                 notifyPatternStarted();
             }
@@ -932,15 +1976,53 @@ public class MaterialLockView extends View {
         mInProgressX = event.getX();
         mInProgressY = event.getY();
 
+        // the predicted end of the in progress segment is drawn too
+        if (mTouchPredictionHorizon > 0) {
+            mTouchPredictor.predict(mTouchPredictionHorizon);
+            final int patternSize = mPattern.size();
+            if (mPatternInProgress && patternSize > 0) {
+                final Cell lastCell = mPattern.get(patternSize - 1);
+                final float lastCellCenterX = getCenterXForColumn(lastCell.column);
+                final float lastCellCenterY = getCenterYForRow(lastCell.row);
+                final float predictedX = mTouchPredictor.getPredictedX();
+                final float predictedY = mTouchPredictor.getPredictedY();
+                mTmpInvalidateRect.union(Math.round(Math.min(lastCellCenterX, predictedX) - radius),
+                        Math.round(Math.min(lastCellCenterY, predictedY) - radius),
+                        Math.round(Math.max(lastCellCenterX, predictedX) + radius),
+                        Math.round(Math.max(lastCellCenterY, predictedY) + radius));
+            }
+        }
+
         // To save updates, we only invalidate if the user moved beyond a
         // certain amount.
         if (invalidateNow) {
             mInvalidate.union(mTmpInvalidateRect);
-            invalidate(mInvalidate);
+            invalidateArea(mInvalidate.left, mInvalidate.top, mInvalidate.right, mInvalidate.bottom);
             mInvalidate.set(mTmpInvalidateRect);
         }
     }
 
+    /**
+     * Feeds a touch sample to {@link #mTouchPredictor}, recording the error of its last prediction if measured.
+     *
+     * @param eventTime The time of the sample, in the {@link MotionEvent#getEventTime()} time base.
+     */
+    private void addPredictorSample(float x, float y, long eventTime) {
+        final float error = mTouchPredictor.addSample(x, y, eventTime * NANOS_PER_MILLI);
+        if (mMetrics != null && !Float.isNaN(error)) {
+            mMetrics.getPredictionError().record(Math.round(error));
+        }
+    }
+
+    private void unionCellInvalidateRect(Cell cell) {
+        final float width = mSquareWidth * 0.5f;
+        final float height = mSquareHeight * 0.5f;
+        final float centerX = getCenterXForColumn(cell.column);
+        final float centerY = getCenterYForRow(cell.row);
+        mTmpInvalidateRect.union(Math.round(centerX - width), Math.round(centerY - height),
+                Math.round(centerX + width), Math.round(centerY + height));
+    }
+
     private void sendAccessEvent(int resId) {
         if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
             setContentDescription(getContext().getString(resId));
@@ -956,31 +2038,99 @@ public class MaterialLockView extends View {
             mPatternInProgress = false;
             cancelLineAnimations();
             notifyPatternDetected();
-            invalidate();
+            invalidateView();
+            if (mMetrics != null) {
+                mMetrics.getAnimationsPerPattern().record(mPatternAnimations);
+            }
+        }
+        reportMetrics();
+    }
+
+    /**
+     * Hands the measurements of the gesture to the metrics listener, then starts over.
+     */
+    private void reportMetrics() {
+        final LockViewMetrics metrics = mMetrics;
+        if (metrics != null) {
+            mOnMetricsListener.onMetrics(metrics);
+            metrics.reset();
         }
-        if (PROFILE_DRAWING) {
-            if (mDrawingProfilingStarted) {
-                Debug.stopMethodTracing();
-                mDrawingProfilingStarted = false;
+    }
+
+    /**
+     * Invalidates the whole view.
+     */
+    private void invalidateView() {
+        recordInvalidation((long) getWidth() * getHeight());
+        invalidate();
+    }
+
+    /**
+     * Invalidates a rectangle of the view.
+     */
+    private void invalidateArea(int left, int top, int right, int bottom) {
+        recordInvalidation((long) (right - left) * (bottom - top));
+        invalidate(left, top, right, bottom);
+    }
+
+    /**
+     * Invalidates the dot of a cell.
+     *
+     * @param size The largest size of the dot since the last invalidation, so that a shrinking dot is erased.
+     */
+    private void invalidateCell(CellState state, float size) {
+        // one more pixel for anti-aliasing and the truncated center
+        final float radius = size * state.scale / 2 + 1;
+        final float centerX = getCenterXForColumn(state.id % mLockSize);
+        final float centerY = getCenterYForRow(state.id / mLockSize) + state.translateY;
+        invalidateArea((int) (centerX - radius) - 1, (int) (centerY - radius) - 1,
+                (int) (centerX + radius) + 1, (int) (centerY + radius) + 1);
+    }
+
+    /**
+     * Invalidates the last segment of {@link #mCommittedPath} while its end animates: the segment stays in the
+     * triangle of the previous cell's center and the start and target of the animation.
+     */
+    private void invalidateLineEnd(CellState state) {
+        final Cell previousCell = mPattern.get(mCommittedPathCells - 2);
+        final float previousX = getCenterXForColumn(previousCell.column);
+        final float previousY = getCenterYForRow(previousCell.row);
+        final float halfWidth = mPathWidth / 2f + 1;
+        final float left = Math.min(previousX, Math.min(state.lineStartX, state.lineTargetX)) - halfWidth;
+        final float top = Math.min(previousY, Math.min(state.lineStartY, state.lineTargetY)) - halfWidth;
+        final float right = Math.max(previousX, Math.max(state.lineStartX, state.lineTargetX)) + halfWidth;
+        final float bottom = Math.max(previousY, Math.max(state.lineStartY, state.lineTargetY)) + halfWidth;
+        invalidateArea((int) left - 1, (int) top - 1, (int) right + 1, (int) bottom + 1);
+    }
+
+    private void recordInvalidation(long area) {
+        final LockViewMetrics metrics = mMetrics;
+        if (metrics != null) {
+            metrics.getInvalidatedArea().record(area);
+            if (mUndrawnInputTime == 0) {
+                mUndrawnInputTime = mHandledInputTime;
             }
         }
     }
 
     private void cancelLineAnimations() {
-        for (int i = 0; i < LOCK_SIZE; i++) {
-            for (int j = 0; j < LOCK_SIZE; j++) {
-                CellState state = mCellStates[i][j];
-                if (state.lineAnimator != null) {
-                    state.lineAnimator.cancel();
-                    state.lineEndX = Float.MIN_VALUE;
-                    state.lineEndY = Float.MIN_VALUE;
-                }
+        final int matrixSize = mLockSize * mLockSize;
+        for (int i = 0; i < matrixSize; i++) {
+            CellState state = mCellStates[i];
+            if (state.lineAnimator != null && state.lineAnimator.isRunning()) {
+                state.lineAnimator.cancel();
+                state.lineEndX = Float.MIN_VALUE;
+                state.lineEndY = Float.MIN_VALUE;
             }
         }
+        rebuildCommittedPath(mCommittedPathCells);
     }
 
     private void handleActionDown(MotionEvent event) {
+        // the user's input wins over a pattern posted from another thread
+        mPostedPattern.set(null);
         resetPattern();
+        mPatternAnimations = 0;
         final float x = event.getX();
         final float y = event.getY();
         final Cell hitCell = detectAndAddHit(x, y);
@@ -1006,17 +2156,16 @@ public class MaterialLockView extends View {
             final float widthOffset = mSquareWidth / 2f;
             final float heightOffset = mSquareHeight / 2f;
 
-            invalidate((int) (startX - widthOffset),
+            invalidateArea((int) (startX - widthOffset),
                     (int) (startY - heightOffset),
                     (int) (startX + widthOffset), (int) (startY + heightOffset));
         }
         mInProgressX = x;
         mInProgressY = y;
-        if (PROFILE_DRAWING) {
-            if (!mDrawingProfilingStarted) {
-                Debug.startMethodTracing("LockPatternDrawing");
-                mDrawingProfilingStarted = true;
-            }
+        if (mTouchPredictionHorizon > 0) {
+            mTouchPredictor.reset();
+            addPredictorSample(x, y, event.getEventTime());
+            mTouchPredictor.predict(mTouchPredictionHorizon);
         }
     }
 
@@ -1030,120 +2179,174 @@ public class MaterialLockView extends View {
 
     @Override
     protected void onDraw(Canvas canvas) {
-        final ArrayList<Cell> pattern = mPattern;
-        final int count = pattern.size();
-        final boolean[][] drawLookup = mPatternDrawLookup;
-
-        if (mPatternDisplayMode == DisplayMode.Animate) {
-
-            // figure out which circles to draw
-
-            // + 1 so we pause on complete pattern
-            final int oneCycle = (count + 1) * MILLIS_PER_CIRCLE_ANIMATING;
-            final int spotInCycle = (int) (SystemClock.elapsedRealtime() - mAnimatingPeriodStart)
-                    % oneCycle;
-            final int numCircles = spotInCycle / MILLIS_PER_CIRCLE_ANIMATING;
-
-            clearPatternDrawLookup();
-            for (int i = 0; i < numCircles; i++) {
-                final Cell cell = pattern.get(i);
-                drawLookup[cell.row][cell.column] = true;
+        final boolean traced = LockTrace.begin(LockTrace.DRAW);
+        try {
+            final LockViewMetrics metrics = mMetrics;
+            final long drawStart = metrics != null ? System.nanoTime() : 0;
+            if (metrics != null && mUndrawnInputTime != 0) {
+                metrics.getInputLatency().record(drawStart - mUndrawnInputTime);
+                mUndrawnInputTime = 0;
             }
 
-            // figure out in progress portion of ghosting line
+            final ArrayList<Cell> pattern = mPattern;
+            final CellBitSet drawLookup = mPatternDrawLookup;
+            final int lockSize = mLockSize;
+
+            // draw the circles: the ones at rest come from the idle layer, the
+            // others are batched by looks, skipping those out of the dirty region
+            final boolean tracedCircles = LockTrace.begin(LockTrace.DRAW_CIRCLES);
+            try {
+                final Rect clip = mDrawClipBounds;
+                if (!canvas.getClipBounds(clip)) {
+                    clip.setEmpty();
+                }
+                // hardware canvases only cut the active dots out of the layer from API 18
+                final Bitmap idleLayer = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2
+                        || !canvas.isHardwareAccelerated() ? getIdleLayer() : null;
+                if (idleLayer != null) {
+                    drawIdleLayer(canvas, idleLayer, drawLookup);
+                }
+                mDotCount = 0;
+                for (int i = 0; i < lockSize; i++) {
+                    float centerY = getCenterYForRow(i);
+                    for (int j = 0; j < lockSize; j++) {
+                        final int id = i * lockSize + j;
+                        if (idleLayer != null && !mActiveDots.contains(id)) {
+                            continue;
+                        }
+                        CellState cellState = mCellStates[id];
+                        float centerX = getCenterXForColumn(j);
+                        float size = cellState.size * cellState.scale;
+                        float translationY = cellState.translateY;
+                        final int x = (int) centerX;
+                        final float y = (int) centerY + translationY;
+                        final int radius = (int) (size / 2) + 1;
+                        if (!clip.intersects(x - radius, (int) y - radius, x + radius, (int) y + radius + 1)) {
+                            continue;
+                        }
+                        addDot(x, y, size, drawLookup.contains(id), cellState.alpha);
+                    }
+                }
+                drawDotBatches(canvas);
+            } finally {
+                LockTrace.end(tracedCircles);
+            }
 
-            final boolean needToUpdateInProgressPoint = numCircles > 0
-                    && numCircles < count;
+            // draw the path of the pattern (unless we are in stealth mode): the
+            // committed segments, then the in progress one
+            final boolean drawPath = !mInStealthMode;
 
-            if (needToUpdateInProgressPoint) {
-                final float percentageOfNextCircle = ((float) (spotInCycle % MILLIS_PER_CIRCLE_ANIMATING))
-                        / MILLIS_PER_CIRCLE_ANIMATING;
+            if (drawPath) {
+                final boolean tracedPath = LockTrace.begin(LockTrace.DRAW_PATH);
+                try {
+                    mPathPaint.setColor(getCurrentColor(true /* partOfPattern */));
 
-                final Cell currentCell = pattern.get(numCircles - 1);
-                final float centerX = getCenterXForColumn(currentCell.column);
-                final float centerY = getCenterYForRow(currentCell.row);
+                    final int committedCells = mCommittedPathCells;
+                    if (committedCells > 1) {
+                        canvas.drawPath(mCommittedPath, mPathPaint);
+                    }
 
-                final Cell nextCell = pattern.get(numCircles);
-                final float dx = percentageOfNextCircle
-                        * (getCenterXForColumn(nextCell.column) - centerX);
-                final float dy = percentageOfNextCircle
-                        * (getCenterYForRow(nextCell.row) - centerY);
-                mInProgressX = centerX + dx;
-                mInProgressY = centerY + dy;
+                    // draw last in progress section
+                    if ((mPatternInProgress || mPatternDisplayMode == DisplayMode.Animate)
+                            && committedCells > 0) {
+                        final Cell lastCell = pattern.get(committedCells - 1);
+                        final float lastX = getCenterXForColumn(lastCell.column);
+                        final float lastY = getCenterYForRow(lastCell.row);
+                        final boolean predicted = mTouchPredictionHorizon > 0 && mPatternInProgress
+                                && mTouchPredictor.hasPrediction();
+                        final float endX = predicted ? mTouchPredictor.getPredictedX() : mInProgressX;
+                        final float endY = predicted ? mTouchPredictor.getPredictedY() : mInProgressY;
+                        final Path currentPath = mCurrentPath;
+                        currentPath.rewind();
+                        currentPath.moveTo(lastX, lastY);
+                        currentPath.lineTo(endX, endY);
+
+                        mPathPaint.setAlpha((int) (calculateLastSegmentAlpha(
+                                endX, endY, lastX, lastY) * 255f));
+                        canvas.drawPath(currentPath, mPathPaint);
+                    }
+                } finally {
+                    LockTrace.end(tracedPath);
+                }
             }
-            // TODO: Infinite loop here...
-            invalidate();
-        }
-
-        final Path currentPath = mCurrentPath;
-        currentPath.rewind();
-
-        // draw the circles
-        for (int i = 0; i < LOCK_SIZE; i++) {
-            float centerY = getCenterYForRow(i);
-            for (int j = 0; j < LOCK_SIZE; j++) {
-                CellState cellState = mCellStates[i][j];
-                float centerX = getCenterXForColumn(j);
-                float size = cellState.size * cellState.scale;
-                float translationY = cellState.translateY;
-                drawCircle(canvas, (int) centerX, (int) centerY + translationY,
-                        size, drawLookup[i][j], cellState.alpha);
+
+            if (metrics != null) {
+                metrics.getDrawTime().record(System.nanoTime() - drawStart);
             }
+        } finally {
+            LockTrace.end(traced);
         }
+    }
 
-        // TODO: the path should be created and cached every time we hit-detect
-        // a cell
-        // only the last segment of the path should be computed here
-        // draw the path of the pattern (unless we are in stealth mode)
-        final boolean drawPath = !mInStealthMode;
-
-        if (drawPath) {
-            mPathPaint.setColor(getCurrentColor(true /* partOfPattern */));
+    /**
+     * @return Whether the dot of a cell looks as in {@link #mIdleLayer}.
+     */
+    private boolean isIdleDot(CellState state, boolean partOfPattern) {
+        return state.size == mDotSize && state.scale == 1f && state.translateY == 0f && state.alpha == 1f
+                && getCurrentColor(partOfPattern) == mRegularColor;
+    }
 
-            boolean anyCircles = false;
-            float lastX = 0f;
-            float lastY = 0f;
-            for (int i = 0; i < count; i++) {
-                Cell cell = pattern.get(i);
+    /**
+     * Gets the idle layer, building it if needed.
+     *
+     * @return The layer, or {@code null} if the view is empty or there is no memory for it.
+     */
+    private Bitmap getIdleLayer() {
+        if (mIdleLayer != null || mSquareWidth <= 0 || mSquareHeight <= 0) {
+            return mIdleLayer;
+        }
+        final int lockSize = mLockSize;
+        final int radius = (mDotSize + 1) / 2 + 1;
+        final int left = (int) getCenterXForColumn(0) - radius;
+        final int top = (int) getCenterYForRow(0) - radius;
+        final int right = (int) getCenterXForColumn(lockSize - 1) + radius + 1;
+        final int bottom = (int) getCenterYForRow(lockSize - 1) + radius + 1;
+        final Bitmap layer;
+        try {
+            layer = Bitmap.createBitmap(right - left, bottom - top, Bitmap.Config.ALPHA_8);
+        } catch (OutOfMemoryError e) {
+            return null;
+        }
 
-                // only draw the part of the pattern stored in
-                // the lookup table (this is only different in the case
-                // of animation).
-                if (!drawLookup[cell.row][cell.column]) {
-                    break;
-                }
-                anyCircles = true;
-
-                float centerX = getCenterXForColumn(cell.column);
-                float centerY = getCenterYForRow(cell.row);
-                if (i != 0) {
-                    CellState state = mCellStates[cell.row][cell.column];
-                    currentPath.rewind();
-                    currentPath.moveTo(lastX, lastY);
-                    if (state.lineEndX != Float.MIN_VALUE
-                            && state.lineEndY != Float.MIN_VALUE) {
-                        currentPath.lineTo(state.lineEndX, state.lineEndY);
-                    } else {
-                        currentPath.lineTo(centerX, centerY);
-                    }
-                    canvas.drawPath(currentPath, mPathPaint);
-                }
-                lastX = centerX;
-                lastY = centerY;
+        final Canvas canvas = new Canvas(layer);
+        final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        for (int i = 0; i < lockSize; i++) {
+            final int centerY = (int) getCenterYForRow(i);
+            for (int j = 0; j < lockSize; j++) {
+                canvas.drawCircle((int) getCenterXForColumn(j) - left, centerY - top, mDotSize / 2f, paint);
             }
+        }
+        mIdleLayer = layer;
+        mIdleLayerLeft = left;
+        mIdleLayerTop = top;
+        return layer;
+    }
 
-            // draw last in progress section
-            if ((mPatternInProgress || mPatternDisplayMode == DisplayMode.Animate)
-                    && anyCircles) {
-                currentPath.rewind();
-                currentPath.moveTo(lastX, lastY);
-                currentPath.lineTo(mInProgressX, mInProgressY);
-
-                mPathPaint.setAlpha((int) (calculateLastSegmentAlpha(
-                        mInProgressX, mInProgressY, lastX, lastY) * 255f));
-                canvas.drawPath(currentPath, mPathPaint);
+    /**
+     * Draws the idle layer, except for the dots which are not at rest, and collects those into {@link #mActiveDots}.
+     */
+    private void drawIdleLayer(Canvas canvas, Bitmap idleLayer, CellBitSet drawLookup) {
+        final int lockSize = mLockSize;
+        final int radius = (mDotSize + 1) / 2 + 1;
+        final CellBitSet activeDots = mActiveDots;
+        activeDots.clear();
+        canvas.save();
+        for (int i = 0; i < lockSize; i++) {
+            final int centerY = (int) getCenterYForRow(i);
+            for (int j = 0; j < lockSize; j++) {
+                final int id = i * lockSize + j;
+                if (!isIdleDot(mCellStates[id], drawLookup.contains(id))) {
+                    activeDots.add(id);
+                    final int centerX = (int) getCenterXForColumn(j);
+                    canvas.clipRect(centerX - radius, centerY - radius, centerX + radius + 1,
+                            centerY + radius + 1, Region.Op.DIFFERENCE);
+                }
             }
         }
+        mPaint.setColor(mRegularColor);
+        mPaint.setAlpha(255);
+        canvas.drawBitmap(idleLayer, mIdleLayerLeft, mIdleLayerTop, mPaint);
+        canvas.restore();
     }
 
     private float calculateLastSegmentAlpha(float x, float y, float lastX,
@@ -1172,39 +2375,120 @@ public class MaterialLockView extends View {
     }
 
     /**
+     * Queues a circle for {@link #drawDotBatches(Canvas)}.
+     *
      * @param partOfPattern Whether this circle is part of the pattern.
      */
-    private void drawCircle(Canvas canvas, float centerX, float centerY,
-                            float size, boolean partOfPattern, float alpha) {
-        mPaint.setColor(getCurrentColor(partOfPattern));
-        mPaint.setAlpha((int) (alpha * 255));
-        canvas.drawCircle(centerX, centerY, size / 2, mPaint);
+    private void addDot(float centerX, float centerY, float size, boolean partOfPattern, float alpha) {
+        if (size <= 0 || alpha <= 0) {
+            // a zero stroke width would draw a hairline point
+            return;
+        }
+        final int index = mDotCount++;
+        mDotCenters[index * 2] = centerX;
+        mDotCenters[index * 2 + 1] = centerY;
+        mDotColors[index] = (getCurrentColor(partOfPattern) & 0xffffff) | ((int) (alpha * 255) << 24);
+        mDotSizes[index] = size;
+    }
+
+    /**
+     * Draws the queued circles with one {@link Canvas#drawPoints(float[], int, int, Paint)} call per color and size,
+     * rather than one call per circle.
+     */
+    private void drawDotBatches(Canvas canvas) {
+        final int count = mDotCount;
+        final float[] centers = mDotCenters;
+        final int[] colors = mDotColors;
+        final float[] sizes = mDotSizes;
+        final float[] batch = mDotBatch;
+        final CellBitSet drawn = mDrawnDots;
+        drawn.clear();
+        for (int i = 0; i < count; i++) {
+            if (drawn.contains(i)) {
+                continue;
+            }
+            final int color = colors[i];
+            final float size = sizes[i];
+            int batchLength = 0;
+            for (int j = i; j < count; j++) {
+                if (!drawn.contains(j) && colors[j] == color && sizes[j] == size) {
+                    drawn.add(j);
+                    batch[batchLength++] = centers[j * 2];
+                    batch[batchLength++] = centers[j * 2 + 1];
+                }
+            }
+            mPaint.setColor(color);
+            mPaint.setStrokeWidth(size);
+            canvas.drawPoints(batch, 0, batchLength, mPaint);
+        }
+        mDotCount = 0;
+    }
+
+
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        final Parcelable superState = super.onSaveInstanceState();
+        final CompactPattern pattern = mPatternBuilder.getPattern();
+        final DisplayMode displayMode = pattern.size() > 0 ? mPatternDisplayMode : DisplayMode.Correct;
+        return new SavedState(superState, pattern.toIdArray(), mLockSize, displayMode.ordinal(),
+                mInputEnabled, mInStealthMode, mEnableHapticFeedback);
     }
 
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+        final SavedState savedState = (SavedState) state;
+        super.onRestoreInstanceState(savedState.getSuperState());
+
+        setLockSize(savedState.getLockSize());
+        mInputEnabled = savedState.isInputEnabled();
+        mInStealthMode = savedState.isInStealthMode();
+        mEnableHapticFeedback = savedState.isTactileFeedbackEnabled();
+
+        final byte[] ids = savedState.getPattern();
+        if (ids.length > 0) {
+            final ArrayList<Cell> pattern = new ArrayList<>(ids.length);
+            for (byte id : ids) {
+                pattern.add(Cell.ofId(id, mLockSize));
+            }
+            setPattern(DisplayMode.values()[savedState.getDisplayMode()], pattern);
+        } else {
+            resetPattern();
+        }
+    }
 
     /**
-     * The parecelable for saving and restoring a lock pattern view.
+     * The parecelable for saving and restoring a lock pattern view. Everything but the pattern fits in one flags int;
+     * the pattern is written as a packed long when it fits (always on the 3x3 grid), as cell-id bytes otherwise.
      */
     private static class SavedState extends BaseSavedState {
 
-        private final String mSerializedPattern;
-        private final int mDisplayMode;
-        private final boolean mInputEnabled;
-        private final boolean mInStealthMode;
-        private final boolean mTactileFeedbackEnabled;
+        private static final int DISPLAY_MODE_MASK = 0x3;
+        private static final int FLAG_INPUT_ENABLED = 1 << 2;
+        private static final int FLAG_IN_STEALTH_MODE = 1 << 3;
+        private static final int FLAG_TACTILE_FEEDBACK_ENABLED = 1 << 4;
+        private static final int FLAG_PACKED_PATTERN = 1 << 5;
+        private static final int LOCK_SIZE_SHIFT = 8;
+
+        private final int mFlags;
+        private final byte[] mPattern;
 
         /**
          * Constructor called from {@link MaterialLockView#onSaveInstanceState()}
          */
-        private SavedState(Parcelable superState, String serializedPattern,
+        private SavedState(Parcelable superState, byte[] pattern, int lockSize,
                            int displayMode, boolean inputEnabled, boolean inStealthMode,
                            boolean tactileFeedbackEnabled) {
             super(superState);
-            mSerializedPattern = serializedPattern;
-            mDisplayMode = displayMode;
-            mInputEnabled = inputEnabled;
-            mInStealthMode = inStealthMode;
-            mTactileFeedbackEnabled = tactileFeedbackEnabled;
+            mPattern = pattern;
+            mFlags = displayMode
+                    | (inputEnabled ? FLAG_INPUT_ENABLED : 0)
+                    | (inStealthMode ? FLAG_IN_STEALTH_MODE : 0)
+                    | (tactileFeedbackEnabled ? FLAG_TACTILE_FEEDBACK_ENABLED : 0)
+                    | (lockSize << LOCK_SIZE_SHIFT);
         }
 
         /**
@@ -1212,41 +2496,53 @@ public class MaterialLockView extends View {
          */
         private SavedState(Parcel in) {
             super(in);
-            mSerializedPattern = in.readString();
-            mDisplayMode = in.readInt();
-            mInputEnabled = (Boolean) in.readValue(null);
-            mInStealthMode = (Boolean) in.readValue(null);
-            mTactileFeedbackEnabled = (Boolean) in.readValue(null);
+            final int flags = in.readInt();
+            if ((flags & FLAG_PACKED_PATTERN) != 0) {
+                final byte[] ids = new byte[MAX_MATRIX_SIZE];
+                final int size = CompactPattern.unpack(in.readLong(), flags >>> LOCK_SIZE_SHIFT, ids);
+                mPattern = new byte[size];
+                System.arraycopy(ids, 0, mPattern, 0, size);
+            } else {
+                mPattern = in.createByteArray();
+            }
+            mFlags = flags & ~FLAG_PACKED_PATTERN;
+        }
+
+        public byte[] getPattern() {
+            return mPattern;
         }
 
-        public String getSerializedPattern() {
-            return mSerializedPattern;
+        public int getLockSize() {
+            return mFlags >>> LOCK_SIZE_SHIFT;
         }
 
         public int getDisplayMode() {
-            return mDisplayMode;
+            return mFlags & DISPLAY_MODE_MASK;
         }
 
         public boolean isInputEnabled() {
-            return mInputEnabled;
+            return (mFlags & FLAG_INPUT_ENABLED) != 0;
         }
 
         public boolean isInStealthMode() {
-            return mInStealthMode;
+            return (mFlags & FLAG_IN_STEALTH_MODE) != 0;
         }
 
         public boolean isTactileFeedbackEnabled() {
-            return mTactileFeedbackEnabled;
+            return (mFlags & FLAG_TACTILE_FEEDBACK_ENABLED) != 0;
         }
 
         @Override
         public void writeToParcel(Parcel dest, int flags) {
             super.writeToParcel(dest, flags);
-            dest.writeString(mSerializedPattern);
-            dest.writeInt(mDisplayMode);
-            dest.writeValue(mInputEnabled);
-            dest.writeValue(mInStealthMode);
-            dest.writeValue(mTactileFeedbackEnabled);
+            final long packed = CompactPattern.pack(mPattern, mPattern.length, getLockSize());
+            if (packed != CompactPattern.NOT_PACKED) {
+                dest.writeInt(mFlags | FLAG_PACKED_PATTERN);
+                dest.writeLong(packed);
+            } else {
+                dest.writeInt(mFlags);
+                dest.writeByteArray(mPattern);
+            }
         }
 
         @SuppressWarnings("unused")
@@ -1262,7 +2558,7 @@ public class MaterialLockView extends View {
         };
     }
 
-    public static class FloatAnimator {
+    public static class FloatAnimator implements AnimationFrameClock.FrameListener {
 
         /**
          * Event listener.
@@ -1326,33 +2622,24 @@ public class MaterialLockView extends View {
 
         }// SimpleEventListener
 
-        /**
-         * Animation delay, in milliseconds.
-         */
-        private static final long ANIMATION_DELAY = 1;
-
-        private final float mStartValue, mEndValue;
-        private final long mDuration;
+        private final FloatAnimation mAnimation;
         private float mAnimatedValue;
+        private Interpolator mInterpolator;
 
-        private List<EventListener> mEventListeners;
-        private Handler mHandler;
-        private long mStartTime;
+        private final List<EventListener> mEventListeners = new ArrayList<>();
+        private boolean mRunning = false;
 
         /**
          * Creates new instance.
          *
          * @param start    start value.
          * @param end      end value.
-         * @param duration duration, in milliseconds. This should not be long, as delay value between animation frame is
-         *                 just 1 millisecond.
+         * @param duration duration, in milliseconds. The value is updated once per display frame.
          */
         public FloatAnimator(float start, float end, long duration) {
-            mStartValue = start;
-            mEndValue = end;
-            mDuration = duration;
+            mAnimation = new FloatAnimation(start, end, duration);
 
-            mAnimatedValue = mStartValue;
+            mAnimatedValue = start;
         }// FloatAnimator()
 
         /**
@@ -1366,6 +2653,30 @@ public class MaterialLockView extends View {
             mEventListeners.add(listener);
         }// addEventListener()
 
+        /**
+         * Sets new values, for the next time the animator is started. This lets an animator be reused instead of
+         * creating a new one.
+         *
+         * @param start    start value.
+         * @param end      end value.
+         * @param duration duration, in milliseconds.
+         */
+        public void setValues(float start, float end, long duration) {
+            mAnimation.setValues(start, end, duration);
+
+            if (!mRunning)
+                mAnimatedValue = start;
+        }// setValues()
+
+        /**
+         * Sets the interpolator applied to the elapsed fraction of the animation.
+         *
+         * @param interpolator the interpolator, {@code null} for linear.
+         */
+        public void setInterpolator(@Nullable Interpolator interpolator) {
+            mInterpolator = interpolator;
+        }// setInterpolator()
+
         /**
          * Gets animated value.
          *
@@ -1375,50 +2686,57 @@ public class MaterialLockView extends View {
             return mAnimatedValue;
         }// getAnimatedValue()
 
+        /**
+         * @return whether the animator is running.
+         */
+        public boolean isRunning() {
+            return mRunning;
+        }// isRunning()
+
         /**
          * Starts animating.
          */
         public void start() {
-            if (mHandler != null)
+            if (mRunning)
                 return;
 
             notifyAnimationStart();
 
-            mStartTime = System.currentTimeMillis();
-
-            mHandler = new Handler();
-            mHandler.post(new Runnable() {
-
-                @Override
-                public void run() {
-                    final Handler handler = mHandler;
-                    if (handler == null) return;
-
-                    final long elapsedTime = System.currentTimeMillis() - mStartTime;
-                    if (elapsedTime > mDuration) {
-                        mHandler = null;
-                        notifyAnimationEnd();
-                    } else {
-                        float fraction = mDuration > 0 ? (float) (elapsedTime) / mDuration : 1f;
-                        float delta = mEndValue - mStartValue;
-                        mAnimatedValue = mStartValue + delta * fraction;
-
-                        notifyAnimationUpdate();
-                        handler.postDelayed(this, ANIMATION_DELAY);
-                    }
-                }// run()
-
-            });
+            mRunning = true;
+            mAnimatedValue = mAnimation.getStartValue();
+            mAnimation.start(AnimationFrameClock.now());
+            AnimationFrameClock.getInstance().addFrameListener(this);
         }// start()
 
+        @Override
+        public void onFrame(long frameTimeNanos) {
+            if (!mRunning) return;
+
+            if (mAnimation.isFinished(frameTimeNanos)) {
+                mAnimatedValue = mAnimation.getEndValue();
+                notifyAnimationUpdate();
+
+                mRunning = false;
+                AnimationFrameClock.getInstance().removeFrameListener(this);
+                notifyAnimationEnd();
+            } else {
+                float fraction = mAnimation.getFraction(frameTimeNanos);
+                if (mInterpolator != null)
+                    fraction = mInterpolator.getInterpolation(fraction);
+                mAnimatedValue = mAnimation.getValue(fraction);
+
+                notifyAnimationUpdate();
+            }
+        }// onFrame()
+
         /**
          * Cancels animating.
          */
         public void cancel() {
-            if (mHandler == null) return;
+            if (!mRunning) return;
 
-            mHandler.removeCallbacksAndMessages(null);
-            mHandler = null;
+            mRunning = false;
+            AnimationFrameClock.getInstance().removeFrameListener(this);
 
             notifyAnimationCancel();
             notifyAnimationEnd();
@@ -1429,10 +2747,8 @@ public class MaterialLockView extends View {
          */
         protected void notifyAnimationStart() {
             final List<EventListener> listeners = mEventListeners;
-            if (listeners != null) {
-                for (EventListener listener : listeners)
-                    listener.onAnimationStart(this);
-            }// if
+            for (int i = 0; i < listeners.size(); i++)
+                listeners.get(i).onAnimationStart(this);
         }// notifyAnimationStart()
 
         /**
@@ -1440,10 +2756,8 @@ public class MaterialLockView extends View {
          */
         protected void notifyAnimationUpdate() {
             final List<EventListener> listeners = mEventListeners;
-            if (listeners != null) {
-                for (EventListener listener : listeners)
-                    listener.onAnimationUpdate(this);
-            }// if
+            for (int i = 0; i < listeners.size(); i++)
+                listeners.get(i).onAnimationUpdate(this);
         }// notifyAnimationUpdate()
 
         /**
@@ -1451,10 +2765,8 @@ public class MaterialLockView extends View {
          */
         protected void notifyAnimationCancel() {
             final List<EventListener> listeners = mEventListeners;
-            if (listeners != null) {
-                for (EventListener listener : listeners)
-                    listener.onAnimationCancel(this);
-            }// if
+            for (int i = 0; i < listeners.size(); i++)
+                listeners.get(i).onAnimationCancel(this);
         }// notifyAnimationCancel()
 
         /**
@@ -1462,10 +2774,8 @@ public class MaterialLockView extends View {
          */
         protected void notifyAnimationEnd() {
             final List<EventListener> listeners = mEventListeners;
-            if (listeners != null) {
-                for (EventListener listener : listeners)
-                    listener.onAnimationEnd(this);
-            }// if
+            for (int i = 0; i < listeners.size(); i++)
+                listeners.get(i).onAnimationEnd(this);
         }// notifyAnimationEnd()
 
     }
@@ -0,0 +1,246 @@
+package com.amnix.materiallockview;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Checks patterns against a salted, key-derived {@link PatternHash} instead of comparing them in clear text. The
+ * derivation runs on a background executor and the result is delivered on the main thread, so the UI thread
+ * never waits for it, whatever the cost.
+ * <p/>
+ * Typical use, from {@link MaterialLockView.OnCompactPatternListener#onPatternDetected(CompactPattern)}, to set a
+ * pattern then to check it:
+ * <pre>
+ * verifier.enroll(pattern, callback); // store hash.encode() in onEnrolled(hash)
+ * verifier.verify(lockView, storedHash, null);
+ * </pre>
+ */
+public class PatternVerifier {
+
+    /**
+     * Receives the result of a verification, on the result executor (the main thread by default).
+     */
+    public interface Callback {
+
+        /**
+         * @param matches Whether the pattern matches the stored hash.
+         */
+        void onVerified(boolean matches);
+
+    }
+
+    /**
+     * Receives the hash of a new pattern, on the result executor (the main thread by default).
+     */
+    public interface EnrollCallback {
+
+        /**
+         * @param hash The hash, to store (e.g. as {@link PatternHash#encode()}) instead of the pattern.
+         */
+        void onEnrolled(@NonNull PatternHash hash);
+
+    }
+
+    /**
+     * Default number of PBKDF2 iterations.
+     */
+    public static final int DEFAULT_ITERATIONS = 10000;
+
+    private static Executor sDefaultExecutor;
+
+    private final Executor mExecutor;
+    private final Executor mResultExecutor;
+
+    /**
+     * Creates a verifier which works on a shared background thread and delivers results on the main thread.
+     */
+    public PatternVerifier() {
+        this(getDefaultExecutor(), new MainThreadExecutor());
+    }
+
+    /**
+     * @param executor       Runs the key derivation and comparison.
+     * @param resultExecutor Delivers the results.
+     */
+    public PatternVerifier(@NonNull Executor executor, @NonNull Executor resultExecutor) {
+        mExecutor = executor;
+        mResultExecutor = resultExecutor;
+    }
+
+    /**
+     * Verifies the current pattern of a view, then switches the view to {@link MaterialLockView.DisplayMode#Correct}
+     * or {@link MaterialLockView.DisplayMode#Wrong}. The switch is skipped if the pattern changed in the meantime.
+     *
+     * @param view     The view.
+     * @param stored   The hash to check against.
+     * @param callback Also receives the result, may be {@code null}.
+     */
+    public void verify(@NonNull final MaterialLockView view, @NonNull PatternHash stored,
+                       @Nullable final Callback callback) {
+        final int generation = view.getPatternGeneration();
+        verify(stored, view.getCompactPattern(), new Callback() {
+
+            @Override
+            public void onVerified(boolean matches) {
+                if (view.getPatternGeneration() == generation) {
+                    view.setDisplayMode(matches ? MaterialLockView.DisplayMode.Correct
+                            : MaterialLockView.DisplayMode.Wrong);
+                }
+                if (callback != null) {
+                    callback.onVerified(matches);
+                }
+            }
+
+        });
+    }
+
+    /**
+     * Verifies a pattern. The cell IDs are copied right away, so the pattern may change after this call.
+     *
+     * @param stored   The hash to check against.
+     * @param pattern  The pattern.
+     * @param callback Receives the result.
+     */
+    public void verify(@NonNull final PatternHash stored, @NonNull CompactPattern pattern,
+                       @NonNull final Callback callback) {
+        final byte[] ids = pattern.toIdArray();
+        final int lockSize = pattern.getLockSize();
+        mExecutor.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                final boolean matches = matches(stored, ids, ids.length, lockSize);
+                mResultExecutor.execute(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        callback.onVerified(matches);
+                    }
+
+                });
+            }
+
+        });
+    }
+
+    /**
+     * Derives the hash of a new pattern with {@link #DEFAULT_ITERATIONS}, see {@link #enroll(CompactPattern, int,
+     * EnrollCallback)}.
+     *
+     * @param pattern  The pattern.
+     * @param callback Receives the hash.
+     */
+    public void enroll(@NonNull CompactPattern pattern, @NonNull EnrollCallback callback) {
+        enroll(pattern, DEFAULT_ITERATIONS, callback);
+    }
+
+    /**
+     * Derives the hash of a new pattern with a new random salt. The cell IDs are copied right away, so the pattern
+     * may change after this call, e.g. the view's own pattern from {@link MaterialLockView.OnCompactPatternListener
+     * #onPatternDetected(CompactPattern)}.
+     *
+     * @param pattern    The pattern.
+     * @param iterations The number of PBKDF2 iterations.
+     * @param callback   Receives the hash.
+     */
+    public void enroll(@NonNull CompactPattern pattern, final int iterations,
+                       @NonNull final EnrollCallback callback) {
+        final byte[] ids = pattern.toIdArray();
+        final int lockSize = pattern.getLockSize();
+        mExecutor.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                final PatternHash hash = hash(ids, ids.length, lockSize, iterations);
+                mResultExecutor.execute(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        callback.onEnrolled(hash);
+                    }
+
+                });
+            }
+
+        });
+    }
+
+    /**
+     * Derives the hash of a pattern with a new random salt. This is as slow as the iteration count makes it, call it
+     * off the UI thread, on a pattern which doesn't change meanwhile: the view's own pattern given to a listener
+     * changes with the next gesture, use {@link #enroll(CompactPattern, int, EnrollCallback)} for it.
+     *
+     * @param pattern    The pattern.
+     * @param iterations The number of PBKDF2 iterations.
+     * @return The hash.
+     */
+    @WorkerThread
+    public static PatternHash hash(@NonNull CompactPattern pattern, int iterations) {
+        return PatternHash.create(pattern, iterations);
+    }
+
+    /**
+     * Derives the hash of a pattern with a new random salt. This is as slow as the iteration count makes it, call it
+     * off the UI thread.
+     *
+     * @param ids        The cell IDs.
+     * @param size       The number of cells.
+     * @param lockSize   The number of rows (and columns) of the grid.
+     * @param iterations The number of PBKDF2 iterations.
+     * @return The hash.
+     */
+    @WorkerThread
+    public static PatternHash hash(@NonNull byte[] ids, int size, int lockSize, int iterations) {
+        return PatternHash.create(ids, size, lockSize, iterations);
+    }
+
+    /**
+     * Checks a pattern against a hash, in constant time once derived. Call it off the UI thread.
+     *
+     * @param stored   The hash.
+     * @param ids      The cell IDs.
+     * @param size     The number of cells.
+     * @param lockSize The number of rows (and columns) of the grid.
+     * @return Whether the pattern matches.
+     */
+    @WorkerThread
+    public static boolean matches(@NonNull PatternHash stored, @NonNull byte[] ids, int size, int lockSize) {
+        return stored.matches(ids, size, lockSize);
+    }
+
+    private static synchronized Executor getDefaultExecutor() {
+        if (sDefaultExecutor == null) {
+            sDefaultExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+                @Override
+                public Thread newThread(@NonNull Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "PatternVerifier");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+
+            });
+        }
+        return sDefaultExecutor;
+    }
+
+    /**
+     * Runs tasks on the main thread, in order.
+     */
+    static class MainThreadExecutor implements Executor {
+
+        private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+        @Override
+        public void execute(@NonNull Runnable runnable) {
+            mHandler.post(runnable);
+        }
+    }
+}
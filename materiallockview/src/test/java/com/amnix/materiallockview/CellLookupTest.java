@@ -0,0 +1,77 @@
+package com.amnix.materiallockview;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class CellLookupTest {
+
+    private static final int THREADS = 8;
+    private static final int LOOKUPS_PER_THREAD = 200000;
+
+    @Test
+    public void looksUpByIdForEveryGridSize() throws Exception {
+        for (int lockSize = MaterialLockView.MIN_LOCK_SIZE; lockSize <= MaterialLockView.MAX_LOCK_SIZE; lockSize++) {
+            for (int id = 0; id < lockSize * lockSize; id++) {
+                final MaterialLockView.Cell cell = MaterialLockView.Cell.ofId(id, lockSize);
+                assertEquals(id / lockSize, cell.row);
+                assertEquals(id % lockSize, cell.column);
+                assertEquals(id, cell.getId(lockSize));
+                assertSame(cell, MaterialLockView.Cell.of(cell.row, cell.column));
+            }
+        }
+        assertSame(MaterialLockView.Cell.of(1, 2), MaterialLockView.Cell.of(5));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsIdOutsideOfTheGrid() throws Exception {
+        MaterialLockView.Cell.ofId(16, 4);
+    }
+
+    /**
+     * Holds the monitor of {@link MaterialLockView.Cell} while other threads look cells up: with a synchronized
+     * lookup they would block until the timeout.
+     */
+    @Test
+    public void lookupTakesNoLock() throws Exception {
+        MaterialLockView.Cell.of(0, 0);
+        final CountDownLatch done = new CountDownLatch(THREADS);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final boolean finished;
+        synchronized (MaterialLockView.Cell.class) {
+            for (int t = 0; t < THREADS; t++) {
+                final int seed = t;
+                new Thread(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        try {
+                            for (int i = 0; i < LOOKUPS_PER_THREAD; i++) {
+                                final int lockSize = MaterialLockView.MIN_LOCK_SIZE
+                                        + (i + seed) % (MaterialLockView.MAX_LOCK_SIZE - MaterialLockView.MIN_LOCK_SIZE + 1);
+                                final int id = (i * 31 + seed) % (lockSize * lockSize);
+                                final MaterialLockView.Cell cell = MaterialLockView.Cell.ofId(id, lockSize);
+                                if (cell.getId(lockSize) != id
+                                        || MaterialLockView.Cell.of(cell.row, cell.column) != cell) {
+                                    throw new AssertionError("wrong cell " + cell + " for id " + id);
+                                }
+                            }
+                        } catch (Throwable e) {
+                            failure.compareAndSet(null, e);
+                        } finally {
+                            done.countDown();
+                        }
+                    }
+
+                }).start();
+            }
+            finished = done.await(30, TimeUnit.SECONDS);
+        }
+        assertTrue("lookups blocked on the Cell monitor", finished);
+        assertNull(failure.get());
+    }
+}
@@ -0,0 +1,135 @@
+package com.amnix.materiallockview;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class PatternVerifierTest {
+
+    private static final int ITERATIONS = 1000;
+
+    private static final Executor DIRECT = new Executor() {
+
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+
+    };
+
+    private static CompactPattern newPattern(int lockSize, int... ids) {
+        final CompactPattern pattern = new CompactPattern();
+        pattern.reset(lockSize);
+        for (int id : ids) {
+            pattern.add(id);
+        }
+        return pattern;
+    }
+
+    @Test
+    public void delegatesToPatternHash() throws Exception {
+        final PatternHash stored = PatternVerifier.hash(newPattern(3, 0, 4, 8, 5), ITERATIONS);
+
+        assertTrue(PatternVerifier.matches(stored, new byte[]{0, 4, 8, 5}, 4, 3));
+        assertFalse(PatternVerifier.matches(stored, new byte[]{0, 4, 8, 6}, 4, 3));
+    }
+
+    /**
+     * The background executor is kept busy, so the result can't be computed before verify() returns.
+     */
+    @Test
+    public void verifyNeverBlocksTheCaller() throws Exception {
+        final PatternHash stored = PatternVerifier.hash(newPattern(3, 6, 4, 2), ITERATIONS);
+        final ExecutorService background = Executors.newSingleThreadExecutor();
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch verified = new CountDownLatch(1);
+        final AtomicBoolean result = new AtomicBoolean();
+        try {
+            background.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+
+            });
+
+            final CompactPattern pattern = newPattern(3, 6, 4, 2);
+            new PatternVerifier(background, DIRECT).verify(stored, pattern, new PatternVerifier.Callback() {
+
+                @Override
+                public void onVerified(boolean matches) {
+                    result.set(matches);
+                    verified.countDown();
+                }
+
+            });
+            // the IDs were copied, changing the pattern now doesn't matter
+            pattern.reset(3);
+            assertEquals(1, verified.getCount());
+
+            release.countDown();
+            assertTrue(verified.await(30, TimeUnit.SECONDS));
+            assertTrue(result.get());
+        } finally {
+            background.shutdownNow();
+        }
+    }
+
+    @Test
+    public void enrollsACopyOfThePatternInTheBackground() throws Exception {
+        final ExecutorService background = Executors.newSingleThreadExecutor();
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch enrolled = new CountDownLatch(1);
+        final AtomicReference<PatternHash> result = new AtomicReference<>();
+        try {
+            background.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+
+            });
+
+            final CompactPattern pattern = newPattern(3, 0, 4, 8, 5);
+            new PatternVerifier(background, DIRECT).enroll(pattern, ITERATIONS,
+                    new PatternVerifier.EnrollCallback() {
+
+                        @Override
+                        public void onEnrolled(PatternHash hash) {
+                            result.set(hash);
+                            enrolled.countDown();
+                        }
+
+                    });
+            // the IDs were copied, like the view's pattern changing with the next gesture
+            pattern.reset(3);
+            pattern.add(1);
+            assertEquals(1, enrolled.getCount());
+
+            release.countDown();
+            assertTrue(enrolled.await(30, TimeUnit.SECONDS));
+            assertTrue(PatternVerifier.matches(result.get(), new byte[]{0, 4, 8, 5}, 4, 3));
+            assertFalse(PatternVerifier.matches(result.get(), new byte[]{1}, 1, 3));
+        } finally {
+            background.shutdownNow();
+        }
+    }
+}